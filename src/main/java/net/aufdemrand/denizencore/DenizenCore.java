@@ -9,6 +9,7 @@ import net.aufdemrand.denizencore.scripts.queues.ScriptEngine;
 import net.aufdemrand.denizencore.utilities.debugging.LogInterceptor;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
 import net.aufdemrand.denizencore.utilities.scheduling.Schedulable;
+import net.aufdemrand.denizencore.utilities.scheduling.TimingWheel;
 
 import java.io.FileNotFoundException;
 import java.io.InputStream;
@@ -44,6 +45,9 @@ public class DenizenCore {
 
     public static long currentTimeMillis = System.currentTimeMillis();
 
+    // Number of ticks so far
+    public static long tickCount = 0;
+
     static {
         String version = "UNKNOWN";
         try {
@@ -121,12 +125,25 @@ public class DenizenCore {
         loadScripts();
     }
 
+    /**
+     * Schedulables that run at set times (EG, delays and repeating timers).
+     */
+    public static final TimingWheel timingWheel = new TimingWheel();
+
+    /**
+     * Schedulables that need ticking every tick.
+     */
     public static final List<Schedulable> scheduled = new ArrayList<Schedulable>();
 
     /**
      * Schedule an item to be run automatically after a given period of time, optionally repeating.
+     * Safe to call from any thread.
      */
     public static void schedule(Schedulable sched) {
+        if (sched.getFirstDelayMillis() >= 0) {
+            timingWheel.schedule(sched);
+            return;
+        }
         synchronized (scheduled) {
             scheduled.add(sched);
         }
@@ -145,11 +162,13 @@ public class DenizenCore {
      */
     public static void tick(int ms_elapsed) {
         currentTimeMillis = System.currentTimeMillis();
+        tickCount++;
         tMS += ms_elapsed;
         while (tMS > 1000) {
             tMS -= 1000;
             oncePerSecond();
         }
+        timingWheel.advance(ms_elapsed);
         synchronized (scheduled) {
             for (int i = 0; i < scheduled.size(); i++) {
                 if (!scheduled.get(i).tick((float) ms_elapsed / 1000)) {
@@ -2,14 +2,12 @@ package net.aufdemrand.denizencore.events;
 
 import net.aufdemrand.denizencore.interfaces.ContextSource;
 import net.aufdemrand.denizencore.objects.aH;
+import net.aufdemrand.denizencore.objects.dList;
 import net.aufdemrand.denizencore.objects.dObject;
-import net.aufdemrand.denizencore.scripts.ScriptBuilder;
 import net.aufdemrand.denizencore.scripts.ScriptEntry;
 import net.aufdemrand.denizencore.scripts.ScriptEntryData;
-import net.aufdemrand.denizencore.scripts.commands.core.DetermineCommand;
 import net.aufdemrand.denizencore.scripts.containers.core.WorldScriptContainer;
-import net.aufdemrand.denizencore.scripts.queues.ScriptQueue;
-import net.aufdemrand.denizencore.scripts.queues.core.InstantQueue;
+import net.aufdemrand.denizencore.scripts.queues.core.InlineQueue;
 import net.aufdemrand.denizencore.utilities.YamlConfiguration;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
 import net.aufdemrand.denizencore.utilities.debugging.dB.DebugElement;
@@ -227,14 +225,9 @@ public class OldEventManager {
                         dB.echoDebug(script, DebugElement.Header, "Building event 'ON " + eventName.toUpperCase()
                                 + "' for " + script.getName());
 
-                        // Create new ID -- this is what we will look for when determining an outcome
-                        long id = DetermineCommand.getNewId();
-
-                        // Add the reqId to each of the entries for the determine command
-                        ScriptBuilder.addObjectToEntries(entries, "reqid", id);
-
                         // Add entries and context to the queue
-                        ScriptQueue queue = InstantQueue.getQueue(ScriptQueue.getNextId(script.getName())).addEntries(entries).setReqId(id);
+                        InlineQueue queue = new InlineQueue(script.getName());
+                        queue.addEntries(entries);
 
                         if (context != null) {
                             OldEventContextSource oecs = new OldEventContextSource();
@@ -242,12 +235,10 @@ public class OldEventManager {
                             queue.setContextSource(oecs);
                         }
 
-                        // Start the queue!
-                        queue.start();
-
-                        // Check the determination
-                        if (DetermineCommand.hasOutcome(id)) {
-                            determinations = DetermineCommand.getOutcome(id);
+                        // Run the queue, and check the determination
+                        dList outcome = queue.run();
+                        if (outcome != null && !outcome.isEmpty()) {
+                            determinations = outcome;
                         }
                     }
                 }
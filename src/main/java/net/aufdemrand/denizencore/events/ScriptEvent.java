@@ -8,14 +8,11 @@ import net.aufdemrand.denizencore.objects.Element;
 import net.aufdemrand.denizencore.objects.aH;
 import net.aufdemrand.denizencore.objects.dList;
 import net.aufdemrand.denizencore.objects.dObject;
-import net.aufdemrand.denizencore.scripts.ScriptBuilder;
 import net.aufdemrand.denizencore.scripts.ScriptEntry;
 import net.aufdemrand.denizencore.scripts.ScriptEntryData;
 import net.aufdemrand.denizencore.scripts.ScriptEntrySet;
-import net.aufdemrand.denizencore.scripts.commands.core.DetermineCommand;
 import net.aufdemrand.denizencore.scripts.containers.ScriptContainer;
-import net.aufdemrand.denizencore.scripts.queues.ScriptQueue;
-import net.aufdemrand.denizencore.scripts.queues.core.InstantQueue;
+import net.aufdemrand.denizencore.scripts.queues.core.InlineQueue;
 import net.aufdemrand.denizencore.utilities.CoreUtilities;
 import net.aufdemrand.denizencore.utilities.YamlConfiguration;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
@@ -288,9 +285,8 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
             path.set = path.container.getSetFor("events.on " + path.event);
         }
         List<ScriptEntry> entries = ScriptContainer.cleanDup(getScriptEntryData(), path.set);
-        long id = DetermineCommand.getNewId();
-        ScriptBuilder.addObjectToEntries(entries, "reqid", id);
-        ScriptQueue queue = InstantQueue.getQueue(ScriptQueue.getNextId(path.container.getName())).addEntries(entries).setReqId(id);
+        InlineQueue queue = new InlineQueue(path.container.getName());
+        queue.addEntries(entries);
         HashMap<String, dObject> oldStyleContext = getContext();
         currentEvent = path.event;
         if (oldStyleContext.size() > 0) {
@@ -303,9 +299,8 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
         else {
             queue.setContextSource(this.clone());
         }
-        queue.start();
+        dList outList = queue.run();
         nanoTimes += System.nanoTime() - queue.startTime;
-        dList outList = DetermineCommand.getOutcome(id);
         if (outList != null && !outList.isEmpty()) {
             List<dObject> determinations = outList.objectForms;
             for (dObject determination : determinations) {
@@ -1,7 +1,6 @@
 package net.aufdemrand.denizencore.objects;
 
 import net.aufdemrand.denizencore.scripts.ScriptRegistry;
-import net.aufdemrand.denizencore.scripts.commands.core.DetermineCommand;
 import net.aufdemrand.denizencore.scripts.containers.ScriptContainer;
 import net.aufdemrand.denizencore.scripts.containers.core.CustomScriptContainer;
 import net.aufdemrand.denizencore.tags.Attribute;
@@ -133,10 +132,9 @@ public class CustomObject implements dObject, dObject.ObjectAttributable, Adjust
         if (res == null) {
             String taggo = attribute.getAttributeWithoutContext(1);
             if (container.hasPath("tags." + taggo)) {
-                long ID = container.runTagScript(taggo, attribute.getContextObject(1), this,
+                dList outcomes = container.runTagScript(taggo, attribute.getContextObject(1), this,
                         attribute.getScriptEntry() != null ? attribute.getScriptEntry().entryData : null);
-                dList outcomes = DetermineCommand.getOutcome(ID);
-                if (outcomes == null) {
+                if (outcomes == null || outcomes.isEmpty()) {
                     return null;
                 }
                 return CoreUtilities.autoAttribTyped(outcomes.getObject(0), attribute.fulfill(1));
@@ -160,9 +158,8 @@ public class CustomObject implements dObject, dObject.ObjectAttributable, Adjust
         }
         dObject value = mechanism.getValue();
         if (container.hasPath("mechanisms." + name)) {
-            long ID = container.runMechScript(name, this, value);
-            dList outcomes = DetermineCommand.getOutcome(ID);
-            if (outcomes == null) {
+            dList outcomes = container.runMechScript(name, this, value);
+            if (outcomes == null || outcomes.isEmpty()) {
                 return;
             }
             CustomObject co = CustomObject.getFor(outcomes.getObject(0), null);
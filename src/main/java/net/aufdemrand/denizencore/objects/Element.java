@@ -5,12 +5,15 @@ import net.aufdemrand.denizencore.objects.properties.PropertyParser;
 import net.aufdemrand.denizencore.scripts.commands.core.Comparable;
 import net.aufdemrand.denizencore.scripts.queues.ScriptQueue;
 import net.aufdemrand.denizencore.tags.Attribute;
+import net.aufdemrand.denizencore.tags.ConstantFolder;
 import net.aufdemrand.denizencore.tags.TagContext;
 import net.aufdemrand.denizencore.tags.TagManager;
+import net.aufdemrand.denizencore.tags.TagProfiler;
 import net.aufdemrand.denizencore.tags.core.EscapeTags;
 import net.aufdemrand.denizencore.utilities.CoreUtilities;
 import net.aufdemrand.denizencore.utilities.SQLEscaper;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
+import net.aufdemrand.denizencore.utilities.text.EscapeAwareString;
 
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
@@ -177,6 +180,25 @@ public class Element implements dObject, dObject.ObjectAttributable {
         this.element = TagManager.cleanOutput(string);
     }
 
+    // For text already known to hold no internal escape characters, EG fully cleaned argument values
+    Element(String prefix, String string, boolean isClean) {
+        this.prefix = prefix == null ? "element" : prefix;
+        this.element = isClean ? string : TagManager.cleanOutput(string);
+    }
+
+    private EscapeAwareString text = null;
+
+    /**
+     * Returns this element's text along with what escaping it contains, so that
+     * repeated conversions of the same element don't rescan or copy it.
+     */
+    public EscapeAwareString asEscapeAware() {
+        if (text == null) {
+            text = new EscapeAwareString(element);
+        }
+        return text;
+    }
+
     static final BigDecimal max = new BigDecimal("10E1000");
 
     private BigDecimal getBD(String text) {
@@ -416,6 +438,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("as_element", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return ((Element) object).getObjectAttribute(attribute.fulfill(1));
             }
@@ -431,6 +454,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("as_boolean", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String element = ((Element) object).element;
                 return new Element(element.equalsIgnoreCase("true")
@@ -450,6 +474,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("as_decimal", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String element = ((Element) object).element;
                 try {
@@ -477,6 +502,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("as_int", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String element = ((Element) object).element;
                 try {
@@ -502,6 +528,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("as_money", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String element = ((Element) object).element;
                 try {
@@ -528,6 +555,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("as_list", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String element = ((Element) object).element;
                 dList obj = handleNull(element, dList.valueOf(element), "dList", attribute.hasAlternative());
@@ -633,6 +661,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("escaped", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String element = ((Element) object).element;
                 return new Element(EscapeTags.Escape(element)).getObjectAttribute(attribute.fulfill(1));
@@ -648,6 +677,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("sql_escaped", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String element = ((Element) object).element;
                 return new Element(SQLEscaper.escapeSQL(element)).getObjectAttribute(attribute.fulfill(1));
@@ -665,6 +695,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("unescaped", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String element = ((Element) object).element;
                 return new Element(EscapeTags.unEscape(element)).getObjectAttribute(attribute.fulfill(1));
@@ -718,6 +749,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("difference", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String element = ((Element) object).element;
                 String two = attribute.getContext(1);
@@ -742,6 +774,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("contains_any_case_sensitive", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String element = ((Element) object).element;
                 dList list = dList.valueOf(attribute.getContext(1));
@@ -774,6 +807,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("contains_any", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String element = ((Element) object).element;
                 dList list = dList.valueOf(CoreUtilities.toLowerCase(attribute.getContext(1)));
@@ -807,6 +841,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("contains_case_sensitive", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String element = ((Element) object).element;
                 String contains = attribute.getContext(1);
@@ -841,6 +876,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("contains", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String element = ((Element) object).element;
                 String contains = attribute.getContext(1);
@@ -875,6 +911,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("contains_all", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String element = ((Element) object).element;
                 dList list = dList.valueOf(CoreUtilities.toLowerCase(attribute.getContext(1)));
@@ -900,6 +937,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("contains_all_case_sensitive", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String element = ((Element) object).element;
                 dList list = dList.valueOf(attribute.getContext(1));
@@ -924,6 +962,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("ends_with", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element(CoreUtilities.toLowerCase(((Element) object).element).
                         endsWith(CoreUtilities.toLowerCase(attribute.getContext(1))))
@@ -941,6 +980,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("equals_case_sensitive", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.equals_case_sensitive[...] must have a value.");
@@ -961,6 +1001,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("matches", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.matches[...] must have a value.");
@@ -981,6 +1022,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("regex", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1) || !attribute.hasContext(2)) {
                     dB.echoError("The tag el@element.regex[...] must have a value.");
@@ -1011,6 +1053,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("length", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element(((Element) object).element.length()).getObjectAttribute(attribute.fulfill(1));
             }
@@ -1026,6 +1069,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("not", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element(!((Element) object).element.equalsIgnoreCase("true")).getObjectAttribute(attribute.fulfill(1));
             }
@@ -1040,6 +1084,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("and", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element(((Element) object).element.equalsIgnoreCase("true") && attribute.getContext(1).equalsIgnoreCase("true"))
                         .getObjectAttribute(attribute.fulfill(1));
@@ -1055,6 +1100,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("or", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element(((Element) object).element.equalsIgnoreCase("true") || attribute.getContext(1).equalsIgnoreCase("true"))
                         .getObjectAttribute(attribute.fulfill(1));
@@ -1070,6 +1116,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("xor", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element(((Element) object).element.equalsIgnoreCase("true") != attribute.getContext(1).equalsIgnoreCase("true"))
                         .getObjectAttribute(attribute.fulfill(1));
@@ -1085,6 +1132,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("starts_with", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element(CoreUtilities.toLowerCase(((Element) object).element).startsWith(CoreUtilities.toLowerCase(attribute.getContext(1))))
                         .getObjectAttribute(attribute.fulfill(1));
@@ -1102,6 +1150,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("index_of", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.index_of[...] must have a value.");
@@ -1123,6 +1172,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("last_index_of", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.last_index_of[...] must have a value.");
@@ -1144,6 +1194,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("char_at", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.char_at[...] must have a value.");
@@ -1174,6 +1225,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("after_last", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.after_last[...] must have a value.");
@@ -1201,6 +1253,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("after", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.after[...] must have a value.");
@@ -1228,6 +1281,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("before_last", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.before_last[...] must have a value.");
@@ -1255,6 +1309,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("before", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.before[...] must have a value.");
@@ -1291,6 +1346,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("replace", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.replace[...] must have a value.");
@@ -1354,6 +1410,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("format_number", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 try {
                     int decimal = ((Element) object).element.indexOf('.');
@@ -1394,6 +1451,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("to_list", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 dList list = new dList();
                 for (int i = 0; i < ((Element) object).element.length(); i++) {
@@ -1412,6 +1470,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("trim", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element(((Element) object).element.trim()).getObjectAttribute(attribute.fulfill(1));
             }
@@ -1426,6 +1485,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("to_uppercase", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element(((Element) object).element.toUpperCase()).getObjectAttribute(attribute.fulfill(1));
             }
@@ -1441,6 +1501,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("to_lowercase", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element(CoreUtilities.toLowerCase(((Element) object).element)).getObjectAttribute(attribute.fulfill(1));
             }
@@ -1456,6 +1517,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("to_titlecase", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (((Element) object).element.length() == 0) {
                     return new Element("").getObjectAttribute(attribute.fulfill(1));
@@ -1488,6 +1550,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("substring", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.substring[...] must have a value.");
@@ -1529,6 +1592,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("pad_left", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.pad_left[...] must have a value.");
@@ -1568,6 +1632,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("pad_right", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.pad_right[...] must have a value.");
@@ -1610,6 +1675,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("abs", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -1630,6 +1696,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("max", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -1650,6 +1717,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("min", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -1670,6 +1738,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("add_int", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -1690,6 +1759,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("div_int", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -1710,6 +1780,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("mul_int", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -1730,6 +1801,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("sub_int", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -1750,6 +1822,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("add", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.add[...] must have a value.");
@@ -1780,6 +1853,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("div", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.div[...] must have a value.");
@@ -1810,6 +1884,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("mod", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.mod[...] must have a value.");
@@ -1834,6 +1909,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("mul", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.mul[...] must have a value.");
@@ -1864,6 +1940,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("sub", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.sub[...] must have a value.");
@@ -1894,6 +1971,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("sqrt", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -1914,6 +1992,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("log", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.log[...] must have a value.");
@@ -1938,6 +2017,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("ln", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -1958,6 +2038,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("power", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.power[...] must have a value.");
@@ -1982,6 +2063,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("asin", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -2002,6 +2084,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("acos", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -2022,6 +2105,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("atan", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -2042,6 +2126,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("cos", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -2062,6 +2147,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("sin", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -2082,6 +2168,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("tan", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -2102,6 +2189,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("to_degrees", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -2122,6 +2210,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("to_radians", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -2142,6 +2231,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("round_up", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -2162,6 +2252,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("round_down", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -2183,6 +2274,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("atan2", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.atan2[...] must have a value.");
@@ -2207,6 +2299,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("round_to", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag el@element.round_to[...] must have a value.");
@@ -2232,6 +2325,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("round", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 Element ele = (Element) object;
                 if (!ele.isDouble()) {
@@ -2252,6 +2346,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
         // -->
         registerTag("type", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element("Element").getObjectAttribute(attribute.fulfill(1));
             }
@@ -2268,6 +2363,7 @@ public class Element implements dObject, dObject.ObjectAttributable {
             runnable.name = name;
         }
         registeredObjectTags.put(name, runnable);
+        TagManager.handlerVersion++;
     }
 
     public static void registerTag(String name, final TagRunnable runnable) {
@@ -2310,8 +2406,8 @@ public class Element implements dObject, dObject.ObjectAttributable {
         }
 
         // TODO: Scrap getAttribute, make this functionality a core system
-        String attrLow = CoreUtilities.toLowerCase(attribute.getAttributeWithoutContext(1));
-        TagRunnable.ObjectForm otr = registeredObjectTags.get(attrLow);
+        String attrLow = attribute.getAttributeWithoutContext(1);
+        TagRunnable.ObjectForm otr = attribute.getObjectTag(Element.class, registeredObjectTags);
         if (otr != null) {
             if (!otr.name.equals(attrLow)) {
                 dB.echoError(attribute.getScriptEntry() != null ? attribute.getScriptEntry().getResidingQueue() : null,
@@ -2320,8 +2416,14 @@ public class Element implements dObject, dObject.ObjectAttributable {
             if (dB.verbose) {
                 dB.log("Element - run tag " + otr.name);
             }
+            if (TagProfiler.enabled) {
+                return TagProfiler.runObjectTag("element", otr, attribute, this);
+            }
             return otr.run(attribute, this);
         }
+
+        // Nothing past the registered tags is known to be pure
+        ConstantFolder.checkPure(attribute, false);
         /*
         TagRunnable tr = registeredTags.get(attrLow);
         if (tr != null) {
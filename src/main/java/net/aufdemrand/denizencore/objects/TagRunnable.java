@@ -4,8 +4,34 @@ import net.aufdemrand.denizencore.tags.Attribute;
 import net.aufdemrand.denizencore.tags.ReplaceableTagEvent;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
 
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
 public abstract class TagRunnable implements Cloneable {
 
+    /**
+     * Marks the run method of a tag as pure: given the same object and the same constant input,
+     * it always returns the same result, has no side effects, and only returns core objects
+     * (Elements and dLists). Pure tags with constant input are calculated once, at script load.
+     * As they touch no shared state, pure tags may also be run off the main thread (EG, to parse
+     * a large list in parallel).
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    public @interface Pure {
+    }
+
+    static boolean isPure(Class<?> type, Class<?>... parameters) {
+        try {
+            return type.getMethod("run", parameters).isAnnotationPresent(Pure.class);
+        }
+        catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
     public static abstract class ObjectForm implements Cloneable {
 
         @Override
@@ -21,6 +47,8 @@ public abstract class TagRunnable implements Cloneable {
 
         public String name = null;
 
+        public final boolean isPure = TagRunnable.isPure(getClass(), Attribute.class, dObject.class);
+
         public abstract dObject run(Attribute attribute, dObject object);
     }
 
@@ -39,6 +67,19 @@ public abstract class TagRunnable implements Cloneable {
 
         public String name = null;
 
+        public final boolean isPure = TagRunnable.isPure(getClass(), ReplaceableTagEvent.class);
+
+        /**
+         * Returns whether this handler gives a constant result for the given tag.
+         * Defaults to whether the run method is marked {@link Pure}, handlers that
+         * cover both constant and varying tags may override this.
+         *
+         * @param attribute the tag, not yet fulfilled.
+         */
+        public boolean isPure(Attribute attribute) {
+            return isPure;
+        }
+
         public abstract void run(ReplaceableTagEvent event);
     }
 
@@ -141,7 +141,7 @@ public class aH {
         public Argument(dObject obj) {
             object = obj;
             if (obj instanceof Element) {
-                fillStr(obj.toString());
+                fillCleanStr(((Element) obj).asEscapeAware().cleanedFully());
             }
             else {
                 raw_value = TagManager.cleanOutputFully(obj.toString()); // TODO: Avoid for non-elements
@@ -151,7 +151,10 @@ public class aH {
         }
 
         void fillStr(String string) {
-            string = TagManager.cleanOutputFully(string);
+            fillCleanStr(TagManager.cleanOutputFully(string));
+        }
+
+        void fillCleanStr(String string) {
             raw_value = string;
 
             int first_colon = string.indexOf(':');
@@ -160,7 +163,7 @@ public class aH {
             if ((first_space > -1 && first_space < first_colon) || first_colon == -1) {
                 value = string;
                 if (object == null) {
-                    object = new Element(value);
+                    object = new Element(null, value, true);
                 }
             }
             else {
@@ -172,7 +175,7 @@ public class aH {
                     lower_prefix = CoreUtilities.toLowerCase(prefix);
                 }
                 value = string.substring(first_colon + 1);
-                object = new Element(value);
+                object = new Element(null, value, true);
             }
             lower_value = CoreUtilities.toLowerCase(value);
         }
@@ -437,7 +440,7 @@ public class aH {
         for (Argument arg : args) {
             if (arg.needsFill || arg.hasSpecialPrefix) {
                 if (arg.object instanceof Element && arg.prefix == null) {
-                    arg.fillStr(arg.object.toString());
+                    arg.fillCleanStr(((Element) arg.object).asEscapeAware().cleanedFully());
                 }
                 else {
                     arg.value = arg.object.toString();
@@ -3,18 +3,22 @@ package net.aufdemrand.denizencore.objects;
 import net.aufdemrand.denizencore.DenizenCore;
 import net.aufdemrand.denizencore.objects.properties.Property;
 import net.aufdemrand.denizencore.objects.properties.PropertyParser;
-import net.aufdemrand.denizencore.scripts.ScriptBuilder;
 import net.aufdemrand.denizencore.scripts.ScriptEntry;
-import net.aufdemrand.denizencore.scripts.commands.core.DetermineCommand;
 import net.aufdemrand.denizencore.scripts.containers.core.ProcedureScriptContainer;
-import net.aufdemrand.denizencore.scripts.queues.ScriptQueue;
-import net.aufdemrand.denizencore.scripts.queues.core.InstantQueue;
+import net.aufdemrand.denizencore.scripts.queues.core.InlineQueue;
 import net.aufdemrand.denizencore.tags.Attribute;
+import net.aufdemrand.denizencore.tags.AttributeProgram;
+import net.aufdemrand.denizencore.tags.ConstantFolder;
+import net.aufdemrand.denizencore.tags.ParallelTags;
 import net.aufdemrand.denizencore.tags.TagContext;
+import net.aufdemrand.denizencore.tags.TagManager;
+import net.aufdemrand.denizencore.tags.TagProfiler;
+import net.aufdemrand.denizencore.tags.TagWatchdog;
 import net.aufdemrand.denizencore.tags.core.EscapeTags;
 import net.aufdemrand.denizencore.utilities.CoreUtilities;
 import net.aufdemrand.denizencore.utilities.NaturalOrderComparator;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
+import net.aufdemrand.denizencore.utilities.text.EscapeAwareString;
 
 import java.util.*;
 import java.util.regex.Pattern;
@@ -130,6 +134,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
     // A string of items, split by '|'
     public dList(String items) {
+        boolean escaped = false;
         if (items != null && items.length() > 0) {
             // Count brackets
             int brackets = 0;
@@ -152,6 +157,9 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
                     super.add(items.substring(start, i));
                     start = i + 1;
                 }
+                else if (!escaped && EscapeAwareString.isInternalEscape(chr)) {
+                    escaped = true;
+                }
             }
             // If there is an item waiting, add it too
             if (start < items.length()) {
@@ -159,8 +167,9 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
             }
         }
         objectForms = new ArrayList<dObject>(size());
+        // Items only need cleaning if the same scan that split them found anything to clean
         for (String str : this) {
-            objectForms.add(new Element(str));
+            objectForms.add(new Element(null, str, !escaped));
         }
     }
 
@@ -425,6 +434,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("space_separated", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (((dList) object).isEmpty()) {
                     return new Element("").getObjectAttribute(attribute.fulfill(1));
@@ -445,6 +455,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("separated_by", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 dList list = (dList) object;
                 if (list.isEmpty()) {
@@ -465,6 +476,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("comma_separated", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (((dList) object).isEmpty()) {
                     return new Element("").getObjectAttribute(attribute.fulfill(1));
@@ -485,6 +497,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("unseparated", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (((dList) object).isEmpty()) {
                     return new Element("").getObjectAttribute(attribute.fulfill(1));
@@ -504,6 +517,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("get_sub_items", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 int index = -1;
                 if (aH.matchesInteger(attribute.getContext(1))) {
@@ -560,6 +574,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("map_get", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (((dList) object).isEmpty()) {
                     return new Element("").getObjectAttribute(attribute.fulfill(1));
@@ -604,6 +619,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("map_find_key", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 String input = attribute.getContext(1);
                 attribute.fulfill(1);
@@ -643,6 +659,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
         // -->
         registerTag("size", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element(((dList) object).size()).getObjectAttribute(attribute.fulfill(1));
             }
@@ -657,6 +674,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
         // -->
         registerTag("is_empty", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element(((dList) object).isEmpty()).getObjectAttribute(attribute.fulfill(1));
             }
@@ -672,6 +690,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("insert", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.insert[...] must have a value.");
@@ -711,6 +730,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("set", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.set[...] must have a value.");
@@ -754,6 +774,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("include", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.include[...] must have a value.");
@@ -775,6 +796,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("exclude", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.exclude[...] must have a value.");
@@ -807,6 +829,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("remove", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.remove[#] must have a value.");
@@ -855,6 +878,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
         // -->
         registerTag("replace", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.replace[...] must have a value.");
@@ -915,6 +939,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("reverse", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 ArrayList<dObject> objs = new ArrayList<dObject>(((dList) object).objectForms);
                 Collections.reverse(objs);
@@ -932,6 +957,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("deduplicate", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 dList obj = (dList) object;
                 dList list = new dList();
@@ -964,6 +990,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("get", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.get[...] must have a value.");
@@ -1041,6 +1068,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("find_all_partial", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.find_all_partial[...] must have a value.");
@@ -1070,6 +1098,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("find_all", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.find_all[...] must have a value.");
@@ -1098,6 +1127,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("find_partial", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.find_partial[...] must have a value.");
@@ -1126,6 +1156,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("find", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.find[...] must have a value.");
@@ -1158,6 +1189,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("count", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.count[...] must have a value.");
@@ -1165,7 +1197,11 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
                 }
                 dList list = (dList) object;
                 String element = attribute.getContext(1);
-                int count = 0;
+                int count = ParallelTags.countMatches(list, element);
+                if (count != -1) {
+                    return new Element(count).getObjectAttribute(attribute.fulfill(1));
+                }
+                count = 0;
                 for (int i = 0; i < list.size(); i++) {
                     if (list.get(i).equalsIgnoreCase(element)) {
                         count++;
@@ -1184,12 +1220,10 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("sum", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 dList list = (dList) object;
-                double sum = 0;
-                for (String entry : list) {
-                    sum += aH.getDoubleFrom(entry);
-                }
+                double sum = sumOf(list);
                 return new Element(sum).getObjectAttribute(attribute.fulfill(1));
             }
         });
@@ -1203,15 +1237,13 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("average", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 dList list = (dList) object;
                 if (list.isEmpty()) {
                     return new Element(0).getObjectAttribute(attribute.fulfill(1));
                 }
-                double sum = 0;
-                for (String entry : list) {
-                    sum += aH.getDoubleFrom(entry);
-                }
+                double sum = sumOf(list);
                 return new Element(sum / list.size()).getObjectAttribute(attribute.fulfill(1));
             }
         });
@@ -1228,6 +1260,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("first", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 dList list = (dList) object;
                 if (list.isEmpty()) {
@@ -1251,6 +1284,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("last", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 dList list = (dList) object;
                 if (list.isEmpty()) {
@@ -1272,6 +1306,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("numerical", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 ArrayList<String> sortable = new ArrayList<String>((dList) object);
                 Collections.sort(sortable, new Comparator<String>() {
@@ -1303,6 +1338,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("alphanumeric", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 ArrayList<String> sortable = new ArrayList<String>((dList) object);
                 Collections.sort(sortable, new NaturalOrderComparator());
@@ -1320,6 +1356,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("alphabetical", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 ArrayList<String> sortable = new ArrayList<String>((dList) object);
                 Collections.sort(sortable, new Comparator<String>() {
@@ -1346,11 +1383,15 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
             public dObject run(final Attribute attribute, final dObject object) {
                 dList newlist = new dList((dList) object);
                 try {
+                    if (newlist.objectForms.size() < 2) {
+                        return newlist.getObjectAttribute(attribute.fulfill(1));
+                    }
+                    final AttributeProgram program = AttributeProgram.compile(attribute, 1);
                     Collections.sort(newlist.objectForms, new Comparator<dObject>() {
                         @Override
                         public int compare(dObject o1, dObject o2) {
-                            dObject or1 = CoreUtilities.autoAttribTyped(o1, new Attribute(attribute.getContext(1), attribute.getScriptEntry(), attribute.context));
-                            dObject or2 = CoreUtilities.autoAttribTyped(o2, new Attribute(attribute.getContext(1), attribute.getScriptEntry(), attribute.context));
+                            dObject or1 = program.run(o1, false);
+                            dObject or2 = program.run(o2, false);
                             double r1 = aH.getDoubleFrom(or1.toString());
                             double r2 = aH.getDoubleFrom(or2.toString());
                             double value = r1 - r2;
@@ -1422,11 +1463,8 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
                             if (entries.isEmpty()) {
                                 return 0;
                             }
-                            long id = DetermineCommand.getNewId();
-                            ScriptBuilder.addObjectToEntries(entries, "reqid", id);
-                            InstantQueue queue = InstantQueue.getQueue(ScriptQueue.getNextId("DLIST_SORT"));
+                            InlineQueue queue = new InlineQueue("DLIST_SORT");
                             queue.addEntries(entries);
-                            queue.setReqId(id);
                             int x = 1;
                             dList definitions = new dList();
                             definitions.add(o1);
@@ -1444,10 +1482,10 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
                                 dB.echoDebug(entries.get(0), "Adding definition %" + name + "% as " + definition);
                                 x++;
                             }
-                            queue.start();
+                            dList outcome = queue.run();
                             int res = 0;
-                            if (DetermineCommand.hasOutcome(id)) {
-                                res = new Element(DetermineCommand.getOutcome(id).get(0)).asInt();
+                            if (outcome != null && !outcome.isEmpty()) {
+                                res = new Element(outcome.get(0)).asInt();
                             }
                             if (res < 0) {
                                 return -1;
@@ -1481,11 +1519,19 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
             public dObject run(Attribute attribute, dObject object) {
                 dList newlist = new dList();
                 try {
-                    for (dObject obj : ((dList) object).objectForms) {
-                        Attribute tempAttrib = new Attribute(attribute.getContext(1),
-                                attribute.getScriptEntry(), attribute.context);
-                        tempAttrib.setHadAlternative(true);
-                        dObject objs = CoreUtilities.autoAttribTyped(obj, tempAttrib);
+                    List<dObject> objects = ((dList) object).objectForms;
+                    AttributeProgram program = objects.isEmpty() ? null : AttributeProgram.compile(attribute, 1);
+                    dObject[] results = program == null ? null : ParallelTags.run(program, objects, true);
+                    for (int i = 0; i < objects.size(); i++) {
+                        dObject obj = objects.get(i);
+                        dObject objs;
+                        if (results != null) {
+                            objs = results[i];
+                        }
+                        else {
+                            TagWatchdog.check();
+                            objs = program.run(obj, true);
+                        }
                         if (objs != null && CoreUtilities.toLowerCase(objs.toString()).equals("true")) {
                             newlist.addObject(obj);
                         }
@@ -1511,11 +1557,18 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
             public dObject run(Attribute attribute, dObject object) {
                 dList newlist = new dList();
                 try {
-                    for (dObject obj : ((dList) object).objectForms) {
-                        Attribute tempAttrib = new Attribute(attribute.getContext(1),
-                                attribute.getScriptEntry(), attribute.context);
-                        tempAttrib.setHadAlternative(attribute.hasAlternative());
-                        dObject objs = CoreUtilities.autoAttribTyped(obj, tempAttrib);
+                    List<dObject> objects = ((dList) object).objectForms;
+                    AttributeProgram program = objects.isEmpty() ? null : AttributeProgram.compile(attribute, 1);
+                    dObject[] results = program == null ? null : ParallelTags.run(program, objects, attribute.hasAlternative());
+                    for (int i = 0; i < objects.size(); i++) {
+                        dObject objs;
+                        if (results != null) {
+                            objs = results[i];
+                        }
+                        else {
+                            TagWatchdog.check();
+                            objs = program.run(objects.get(i), attribute.hasAlternative());
+                        }
                         if (objs == null) {
                             objs = new Element("null");
                         }
@@ -1539,6 +1592,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("pad_left", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.pad_left[...] must have a value.");
@@ -1580,6 +1634,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("pad_right", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.pad_right[...] must have a value.");
@@ -1622,6 +1677,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("escape_contents", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 dList escaped = new dList();
                 for (String entry : (dList) object) {
@@ -1642,6 +1698,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("unescape_contents", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 dList escaped = new dList();
                 for (String entry : (dList) object) {
@@ -1660,6 +1717,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("contains_any_case_sensitive", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.contains_any_case_sensitive[...] must have a value.");
@@ -1691,6 +1749,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("contains_any", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.contains_any[...] must have a value.");
@@ -1722,6 +1781,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("contains_case_sensitive", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.contains_case_sensitive[...] must have a value.");
@@ -1749,6 +1809,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("contains", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 if (!attribute.hasContext(1)) {
                     dB.echoError("The tag li@list.contains[...] must have a value.");
@@ -1780,6 +1841,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("type", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element("List").getObjectAttribute(attribute.fulfill(1));
             }
@@ -1839,6 +1901,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("closest_to", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element(CoreUtilities.getClosestOption((dList) object, attribute.getContext(1)))
                         .getObjectAttribute(attribute.fulfill(1));
@@ -1892,6 +1955,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
 
         registerTag("type", new TagRunnable.ObjectForm() {
             @Override
+            @TagRunnable.Pure
             public dObject run(Attribute attribute, dObject object) {
                 return new Element("List").getObjectAttribute(attribute.fulfill(1));
             }
@@ -1908,6 +1972,7 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
             runnable.name = name;
         }
         registeredObjectTags.put(name, runnable);
+        TagManager.handlerVersion++;
     }
 
     public static void registerTag(String name, final TagRunnable runnable) {
@@ -1938,6 +2003,26 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
                 dScriptArg.length() - spacer.length());
     }
 
+    //
+    // sumOf(dList list)
+    // Returns the sum of the numbers in a dList, adding them up in list order.
+    //
+
+    private static double sumOf(dList list) {
+        double sum = 0;
+        double[] numbers = ParallelTags.toDoubles(list);
+        if (numbers != null) {
+            for (double number : numbers) {
+                sum += number;
+            }
+            return sum;
+        }
+        for (String entry : list) {
+            sum += aH.getDoubleFrom(entry);
+        }
+        return sum;
+    }
+
     @Override
     public String getAttribute(Attribute attribute) {
         return CoreUtilities.stringifyNullPass(getObjectAttribute(attribute));
@@ -1960,15 +2045,21 @@ public class dList extends ArrayList<String> implements dObject, dObject.ObjectA
         }
 
         // TODO: Scrap getObjectAttribute, make this functionality a core system
-        String attrLow = CoreUtilities.toLowerCase(attribute.getAttributeWithoutContext(1));
-        TagRunnable.ObjectForm otr = registeredObjectTags.get(attrLow);
+        String attrLow = attribute.getAttributeWithoutContext(1);
+        TagRunnable.ObjectForm otr = attribute.getObjectTag(dList.class, registeredObjectTags);
         if (otr != null) {
             if (!otr.name.equals(attrLow)) {
                 dB.echoError(attribute.getScriptEntry() != null ? attribute.getScriptEntry().getResidingQueue() : null,
                         "Using deprecated form of tag '" + otr.name + "': '" + attrLow + "'.");
             }
+            if (TagProfiler.enabled) {
+                return TagProfiler.runObjectTag("list", otr, attribute, this);
+            }
             return otr.run(attribute, this);
         }
+
+        // Nothing past the registered tags is known to be pure
+        ConstantFolder.checkPure(attribute, false);
         /*
         TagRunnable tr = registeredTags.get(attrLow);
         if (tr != null) {
@@ -0,0 +1,191 @@
+package net.aufdemrand.denizencore.scripts;
+
+import net.aufdemrand.denizencore.objects.aH;
+import net.aufdemrand.denizencore.utilities.CoreUtilities;
+import net.aufdemrand.denizencore.utilities.YamlConfiguration;
+import net.aufdemrand.denizencore.utilities.debugging.dB;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The marks in a built list of script entries, by name, so a 'goto' can find the mark it
+ * jumps to without searching the queue. Built along with the list, and shared by its entries
+ * (and their clones, which run the same lines) through {@link ScriptEntry.ScriptEntryInternal#jumpTable}.
+ * <p/>
+ * Indices are into the list as built, which is how the entries are laid out when run
+ * (EG, as a task's entries, or a braced section): an array of entries laid out differently
+ * is searched through instead.
+ */
+public class JumpTable {
+
+    private static final int[] NONE = new int[0];
+
+    // Indices of the marks with each name (lowercase), in order
+    private final Map<String, int[]> marks;
+
+    // The list as built, by internals, to check entries against
+    private final ScriptEntry.ScriptEntryInternal[] lines;
+
+    private JumpTable(Map<String, int[]> marks, ScriptEntry.ScriptEntryInternal[] lines) {
+        this.marks = marks;
+        this.lines = lines;
+    }
+
+    /**
+     * Returns the name of the mark an entry makes, or null if it isn't a mark.
+     */
+    public static String getMarkName(ScriptEntry entry) {
+        if (!entry.getCommandName().equalsIgnoreCase("mark")) {
+            return null;
+        }
+        List<String> args = entry.getOriginalArguments();
+        return args.size() > 0 ? args.get(0) : null;
+    }
+
+    /**
+     * Builds the jump table of a list of entries, and gives it to each entry in the list.
+     * The list must be complete (EG, with any braced commands linked up already).
+     */
+    public static void build(List<ScriptEntry> entries) {
+        Map<String, int[]> marks = new HashMap<String, int[]>();
+        ScriptEntry.ScriptEntryInternal[] lines = new ScriptEntry.ScriptEntryInternal[entries.size()];
+        for (int i = 0; i < lines.length; i++) {
+            ScriptEntry entry = entries.get(i);
+            lines[i] = entry.internal;
+            String name = getMarkName(entry);
+            if (name != null) {
+                name = CoreUtilities.toLowerCase(name);
+                int[] got = marks.get(name);
+                int[] now = got == null ? new int[1] : new int[got.length + 1];
+                if (got != null) {
+                    System.arraycopy(got, 0, now, 0, got.length);
+                }
+                now[now.length - 1] = i;
+                marks.put(name, now);
+            }
+        }
+        JumpTable table = new JumpTable(marks, lines);
+        for (ScriptEntry entry : entries) {
+            entry.internal.jumpTable = table;
+        }
+    }
+
+    /**
+     * Finds the first mark with the given name in a range of an array of entries.
+     *
+     * @param entries   the array of entries, which should start with an entry of this table's list.
+     * @param from      the start of the range.
+     * @param end       the index after the end of the range.
+     * @param name      the mark name.
+     * @param lowerName the mark name, in lowercase.
+     * @return the index of the mark, or -1 if it isn't in the range.
+     */
+    public int find(ScriptEntry[] entries, int from, int end, String name, String lowerName) {
+        int lined = Math.min(end, lines.length);
+        // Only trust the table over a range that's laid out the same as the list
+        if (from < lined && entries[from].internal == lines[from] && entries[lined - 1].internal == lines[lined - 1]) {
+            int[] at = marks.get(lowerName);
+            if (at == null) {
+                at = NONE;
+            }
+            for (int index : at) {
+                if (index >= from && index < lined) {
+                    if (entries[index].internal == lines[index]) {
+                        return index;
+                    }
+                    return search(entries, from, end, name);
+                }
+            }
+            // Anything past the end of the list (EG, a loop's callback) isn't from it
+            return search(entries, lined, end, name);
+        }
+        return search(entries, from, end, name);
+    }
+
+    /**
+     * Finds the first mark with the given name in a range of an array of entries, by looking through each one.
+     *
+     * @return the index of the mark, or -1 if it isn't in the range.
+     */
+    public static int search(ScriptEntry[] entries, int from, int end, String name) {
+        for (int i = from; i < end; i++) {
+            String mark = getMarkName(entries[i]);
+            if (mark != null && mark.equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Warns of any 'goto' in a script that jumps to a mark the script doesn't have anywhere, by going through
+     * the script as loaded, before anything is built from it. Only a warning, since a script injected into
+     * another's queue can jump to the other's marks. Jumps to names with tags or definitions in are left for when they run.
+     *
+     * @param name     the name of the script.
+     * @param contents the script's contents.
+     */
+    public static void checkMarks(String name, YamlConfiguration contents) {
+        if (contents == null) {
+            return;
+        }
+        Set<String> marks = new HashSet<String>();
+        List<String> gotos = new ArrayList<String>();
+        collect(contents.getMap(), marks, gotos);
+        for (String target : gotos) {
+            if (target.indexOf('<') == -1 && target.indexOf('%') == -1 && !marks.contains(CoreUtilities.toLowerCase(target))) {
+                dB.log("<G>Warning: script '<A>" + name + "<G>' has a goto to mark '<A>" + target
+                        + "<G>', which it doesn't have anywhere (unless a script it's injected into does).");
+            }
+        }
+    }
+
+    private static void collect(Object contents, Set<String> marks, List<String> gotos) {
+        if (contents instanceof List) {
+            for (Object item : (List<?>) contents) {
+                if (item instanceof Map) {
+                    // A command with a block of entries (EG, 'if ...:')
+                    for (Map.Entry<?, ?> entry : ((Map<?, ?>) item).entrySet()) {
+                        collectLine(String.valueOf(entry.getKey()), marks, gotos);
+                        collect(entry.getValue(), marks, gotos);
+                    }
+                }
+                else if (item != null) {
+                    collectLine(item.toString(), marks, gotos);
+                }
+            }
+        }
+        else if (contents instanceof Map) {
+            // A section of the script, whose keys are names rather than commands
+            for (Object value : ((Map<?, ?>) contents).values()) {
+                collect(value, marks, gotos);
+            }
+        }
+    }
+
+    private static void collectLine(String line, Set<String> marks, List<String> gotos) {
+        String[] split = line.split(" ", 2);
+        if (split.length < 2) {
+            return;
+        }
+        boolean mark = split[0].equalsIgnoreCase("mark");
+        if (!mark && !split[0].equalsIgnoreCase("goto")) {
+            return;
+        }
+        String[] args = aH.buildArgs(split[1]);
+        if (args.length == 0) {
+            return;
+        }
+        if (mark) {
+            marks.add(CoreUtilities.toLowerCase(args[0]));
+        }
+        else {
+            gotos.add(args[0]);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package net.aufdemrand.denizencore.scripts;
 
 import net.aufdemrand.denizencore.objects.aH;
+import net.aufdemrand.denizencore.scripts.commands.AbstractCommand;
+import net.aufdemrand.denizencore.scripts.commands.BracedCommand;
 import net.aufdemrand.denizencore.scripts.containers.ScriptContainer;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
 
@@ -92,6 +94,15 @@ public class ScriptBuilder {
             }
         }
 
+        // Link braced commands to the entries around them, now they're all built
+        for (int i = 0; i < scriptCommands.size(); i++) {
+            AbstractCommand command = scriptCommands.get(i).getCommand();
+            if (command instanceof BracedCommand) {
+                ((BracedCommand) command).linkBlocks(scriptCommands, i);
+            }
+        }
+        JumpTable.build(scriptCommands);
+
         return scriptCommands;
     }
 }
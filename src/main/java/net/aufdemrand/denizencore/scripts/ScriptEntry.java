@@ -12,6 +12,7 @@ import net.aufdemrand.denizencore.scripts.commands.BracedCommand;
 import net.aufdemrand.denizencore.scripts.commands.Holdable;
 import net.aufdemrand.denizencore.scripts.containers.ScriptContainer;
 import net.aufdemrand.denizencore.scripts.queues.ScriptQueue;
+import net.aufdemrand.denizencore.tags.ConstantFolder;
 import net.aufdemrand.denizencore.tags.TagContext;
 import net.aufdemrand.denizencore.tags.TagManager;
 import net.aufdemrand.denizencore.utilities.CoreUtilities;
@@ -56,6 +57,12 @@ public class ScriptEntry implements Cloneable, Debuggable {
         public int[] processArgs = null;
 
         public List<aH.Argument> preprocArgs = null;
+
+        // Whatever the command works out from the arguments once, to reuse each run (EG, a compiled condition)
+        public Object commandData = null;
+
+        // The marks of the list this entry was built in
+        public JumpTable jumpTable = null;
     }
 
     public static class Argument {
@@ -75,6 +82,9 @@ public class ScriptEntry implements Cloneable, Debuggable {
 
     public List<dObject> processed_arguments = null;
 
+    // Whether args and processed_arguments are still shared with the entry this was cloned from
+    private boolean sharedArguments = false;
+
     public ScriptEntryData entryData = null;
 
     private ScriptQueue queue = null;
@@ -89,7 +99,8 @@ public class ScriptEntry implements Cloneable, Debuggable {
         internal.bracedSet = set;
     }
 
-    private Map<String, Object> objects = new HashMap<String, Object>();
+    // Made when the first object is added, as many entries never have any
+    private Map<String, Object> objects = null;
 
     public void regenerateArgsCur() {
         args_cur = new ArrayList<Argument>(internal.args_ref);
@@ -115,14 +126,40 @@ public class ScriptEntry implements Cloneable, Debuggable {
 
     @Override
     public ScriptEntry clone() throws CloneNotSupportedException {
+        return clone(entryData);
+    }
+
+    /**
+     * Clones the entry for a new run, with a copy of the given entry data.
+     * <p/>
+     * The parsed command is shared, and so are the argument lists until either entry changes them
+     * (see {@link #ownArguments()}), so a clone is cheap to make.
+     */
+    public ScriptEntry clone(ScriptEntryData data) throws CloneNotSupportedException {
         ScriptEntry se = (ScriptEntry) super.clone();
-        se.objects = new HashMap<String, Object>();
-        se.processed_arguments = processed_arguments == null ? null : new ArrayList<dObject>(processed_arguments);
-        se.args = new ArrayList<String>(args);
-        se.entryData = entryData.clone();
+        se.heldQueue = null;
+        se.objects = null;
+        // Both now share the lists, so whichever changes them first has to copy them
+        sharedArguments = true;
+        se.sharedArguments = true;
+        se.entryData = data.clone();
         return se;
     }
 
+    /**
+     * Gives the entry its own copies of {@link #args} and {@link #processed_arguments}, if they're shared
+     * with another entry (as they are between a clone and its original), so they can be changed.
+     * Must be called before changing either list in place.
+     */
+    public void ownArguments() {
+        if (!sharedArguments) {
+            return;
+        }
+        sharedArguments = false;
+        processed_arguments = processed_arguments == null ? null : new ArrayList<dObject>(processed_arguments);
+        args = new ArrayList<String>(args);
+    }
+
     public List<Object> getInsideList() {
         return internal.insideList;
     }
@@ -151,6 +188,7 @@ public class ScriptEntry implements Cloneable, Debuggable {
         }
         else {
             argVal.value = TagManager.genChain(arg, refContext);
+            ConstantFolder.fold(argVal.value, refContext);
         }
         boolean isTag = false;
         int indStart = arg.indexOf('<');
@@ -307,9 +345,10 @@ public class ScriptEntry implements Cloneable, Debuggable {
             if (internal.actualCommand.getOptions().REQUIRED_ARGS > args.size()) {
                 broken = true;
             }
-            if (internal.actualCommand instanceof BracedCommand) {
-                BracedCommand.getBracedCommands(this);
-            }
+        }
+        // Work out what's inside the entry once, as it's built, rather than on each run
+        if (internal.insideList != null || internal.actualCommand instanceof BracedCommand) {
+            BracedCommand.getBracedBlocks(this);
         }
     }
 
@@ -328,6 +367,9 @@ public class ScriptEntry implements Cloneable, Debuggable {
         if (object instanceof dObject) {
             ((dObject) object).setPrefix(key);
         }
+        if (objects == null) {
+            objects = new HashMap<String, Object>();
+        }
         objects.put(CoreUtilities.toLowerCase(key), object);
         return this;
     }
@@ -341,7 +383,7 @@ public class ScriptEntry implements Cloneable, Debuggable {
      * @return The scriptEntry
      */
     public ScriptEntry defaultObject(String key, Object... objects) throws InvalidArgumentsException {
-        if (!this.objects.containsKey(CoreUtilities.toLowerCase(key))) {
+        if (!hasObject(CoreUtilities.toLowerCase(key))) {
             for (Object obj : objects) {
                 if (obj != null) {
                     this.addObject(key, obj);
@@ -391,6 +433,7 @@ public class ScriptEntry implements Cloneable, Debuggable {
     public boolean broken = false;
 
     public void setArgument(int ind, String val) {
+        ownArguments();
         args.set(ind, val);
         if (processed_arguments != null) {
             processed_arguments.set(ind, new Element(val));
@@ -398,20 +441,23 @@ public class ScriptEntry implements Cloneable, Debuggable {
     }
 
     public ScriptEntry setArguments(List<String> arguments) {
+        ownArguments();
         args = arguments;
         return this;
     }
 
     public ScriptEntry setArgumentsObjects(List<dObject> arguments) {
+        sharedArguments = false;
         processed_arguments = arguments;
         args = new ArrayList<String>(arguments.size()); // TODO: Placeholder! Remove old string args entirely!
         for (dObject tmp : arguments) {
-            args.add(TagManager.escapeOutput(tmp.toString()));
+            args.add(tmp instanceof Element ? ((Element) tmp).asEscapeAware().escaped() : TagManager.escapeOutput(tmp.toString()));
         }
         return this;
     }
 
     public void objectify() {
+        sharedArguments = false;
         processed_arguments = new ArrayList<dObject>(args.size());
         for (String arg : args) {
             processed_arguments.add(new Element(arg));
@@ -449,13 +495,16 @@ public class ScriptEntry implements Cloneable, Debuggable {
     //////////////
 
     public Map<String, Object> getObjects() {
+        if (objects == null) {
+            objects = new HashMap<String, Object>();
+        }
         return objects;
     }
 
 
     public Object getObject(String key) {
         try {
-            return objects.get(key);
+            return objects == null ? null : objects.get(key);
         }
         catch (Exception ex) {
             if (dB.verbose) {
@@ -468,7 +517,7 @@ public class ScriptEntry implements Cloneable, Debuggable {
     public <T extends dObject> T getdObject(String key) {
         try {
             // If an ENUM, return as an Element
-            Object gotten = objects.get(key);
+            Object gotten = objects == null ? null : objects.get(key);
             if (gotten instanceof Enum) {
                 return (T) new Element(((Enum) gotten).name());
             }
@@ -486,7 +535,7 @@ public class ScriptEntry implements Cloneable, Debuggable {
 
     public Element getElement(String key) {
         try {
-            return (Element) objects.get(key);
+            return (Element) (objects == null ? null : objects.get(key));
         }
         catch (Exception ex) {
             if (dB.verbose) {
@@ -498,7 +547,7 @@ public class ScriptEntry implements Cloneable, Debuggable {
 
 
     public boolean hasObject(String key) {
-        return objects.containsKey(key);
+        return objects != null && objects.containsKey(key);
     }
 
     /////////////
@@ -542,18 +591,49 @@ public class ScriptEntry implements Cloneable, Debuggable {
         return this;
     }
 
-    public boolean isFinished = false;
+    public volatile boolean isFinished = false;
+
+    // Queue parked until this entry finishes, if any
+    private ScriptQueue heldQueue = null;
 
     public boolean shouldWaitFor() {
         return internal.waitfor && !isFinished;
     }
 
 
+    /**
+     * Marks whether the entry's command has finished. Finishing wakes any queue parked on this entry.
+     * May be called from any thread.
+     */
     public ScriptEntry setFinished(boolean finished) {
-        isFinished = finished;
+        ScriptQueue toWake = null;
+        synchronized (this) {
+            isFinished = finished;
+            if (finished) {
+                toWake = heldQueue;
+                heldQueue = null;
+            }
+        }
+        if (toWake != null) {
+            toWake.wake();
+        }
         return this;
     }
 
+
+    /**
+     * Parks a queue until this entry finishes.
+     *
+     * @return false if the entry has already finished, in which case there's nothing to wait for.
+     */
+    public synchronized boolean holdQueue(ScriptQueue queue) {
+        if (isFinished) {
+            return false;
+        }
+        heldQueue = queue;
+        return true;
+    }
+
     ////////////
     // COMPATIBILITY
     //////////
@@ -13,6 +13,22 @@ public class ScriptEntrySet {
         entries = baseEntries;
     }
 
+    /**
+     * Clones every entry for a new run, each with its own copy of the given entry data.
+     */
+    public ScriptEntrySet duplicate(ScriptEntryData data) {
+        List<ScriptEntry> newEntries = new ArrayList<ScriptEntry>(entries.size());
+        try {
+            for (ScriptEntry entry : entries) {
+                newEntries.add(entry.clone(data));
+            }
+        }
+        catch (CloneNotSupportedException e) {
+            dB.echoError(e); // This should never happen
+        }
+        return new ScriptEntrySet(newEntries);
+    }
+
     public ScriptEntrySet duplicate() {
         List<ScriptEntry> newEntries = new ArrayList<ScriptEntry>(entries.size());
         try {
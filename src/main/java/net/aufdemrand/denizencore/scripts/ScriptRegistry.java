@@ -76,8 +76,10 @@ public class ScriptRegistry {
                 Class typeClass = scriptContainerTypes.get(type.toUpperCase());
                 dB.log("Adding script " + scriptName + " as type " + type.toUpperCase());
                 try {
+                    YamlConfiguration contents = ScriptHelper._gs().getConfigurationSection(scriptName);
                     scriptContainers.put(scriptName, typeClass.getConstructor(YamlConfiguration.class, String.class)
-                            .newInstance(ScriptHelper._gs().getConfigurationSection(scriptName), scriptName));
+                            .newInstance(contents, scriptName));
+                    JumpTable.checkMarks(scriptName, contents);
                 }
                 catch (Exception e) {
                     dB.echoError(e);
@@ -4,6 +4,7 @@ import net.aufdemrand.denizencore.exceptions.ScriptEntryCreationException;
 import net.aufdemrand.denizencore.objects.aH;
 import net.aufdemrand.denizencore.scripts.ScriptBuilder;
 import net.aufdemrand.denizencore.scripts.ScriptEntry;
+import net.aufdemrand.denizencore.scripts.queues.ScriptQueue;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
 
 import java.util.ArrayList;
@@ -19,6 +20,9 @@ public abstract class BracedCommand extends AbstractCommand {
         public int aStart, aEnd;
         public boolean needPatch;
 
+        // Whatever the command works out from the section's arguments once, to reuse each run
+        public Object commandData;
+
         @Override
         public int hashCode() {
             return key.hashCode();
@@ -34,54 +38,126 @@ public abstract class BracedCommand extends AbstractCommand {
     }
 
     /**
-     * Gets the commands inside the braces of this ScriptEntry.
+     * Gets the commands inside the braces of this ScriptEntry, copied for it to run.
+     * Commands should generally prefer {@link #getBracedBlocks(ScriptEntry)}, and copy only the section they run.
      *
      * @param scriptEntry The ScriptEntry to get the braced commands from.
      * @return The list of ScriptEntries to be executed in the command.
      */
     public static List<BracedData> getBracedCommands(ScriptEntry scriptEntry) {
 
-        if (scriptEntry == null) {
+        List<BracedData> blocks = getBracedBlocks(scriptEntry);
+        if (blocks == null) {
             return null;
         }
+        List<BracedData> res = new ArrayList<BracedData>(blocks.size());
+        try {
+            for (BracedData bd : blocks) {
+                BracedData newbd = new BracedData();
+                newbd.key = bd.key;
+                newbd.args = bd.args;
+                newbd.value = new ArrayList<ScriptEntry>(bd.value.size());
+                for (ScriptEntry sEntry : bd.value) {
+                    ScriptEntry newEntry = sEntry.clone(sEntry.entryData);
+                    newEntry.entryData.transferDataFrom(scriptEntry.entryData);
+                    newbd.value.add(newEntry);
+                }
+                res.add(newbd);
+            }
+        }
+        catch (Exception e) {
+            dB.echoError(scriptEntry.getResidingQueue(), e);
+        }
+        return res;
+    }
 
-        boolean hyperdebug = dB.verbose;
+    /**
+     * Gets the braced sections of this ScriptEntry, as built with the script.
+     * <p/>
+     * The sections, and the entries in them, are shared by every run of the entry, so must not be changed,
+     * and the entries must not be run as they are: use {@link #copyBlock(ScriptEntry, BracedData, int)}
+     * for a copy of the section to run.
+     *
+     * @param scriptEntry The ScriptEntry to get the braced sections of.
+     * @return The sections, in order.
+     */
+    public static List<BracedData> getBracedBlocks(ScriptEntry scriptEntry) {
 
-        // And a place to store all the final braces...
-        List<BracedData> bracedSections = new ArrayList<BracedData>();
+        if (scriptEntry == null) {
+            return null;
+        }
 
-        List<BracedData> entryBracedSet = scriptEntry.getBracedSet();
-        if (entryBracedSet != null) {
-            List<BracedData> res = new ArrayList<BracedData>(entryBracedSet);
-            try {
-                for (int i = 0; i < res.size(); i++) {
-                    BracedData newbd = new BracedData();
-                    BracedData bd = res.get(i);
-                    res.set(i, newbd);
-                    newbd.key = bd.key;
-                    newbd.value = new ArrayList<ScriptEntry>(bd.value.size());
-                    for (ScriptEntry sEntry : bd.value) {
-                        ScriptEntry newEntry = sEntry.clone();
-                        newEntry.entryData.transferDataFrom(scriptEntry.entryData);
-                        newbd.value.add(newEntry);
-                    }
-                    if (bd.needPatch) {
-                        newbd.args = new ArrayList<String>(bd.args.size());
-                        for (int x = bd.aStart; x <= bd.aEnd; x++) {
-                            newbd.args.add(scriptEntry.args.get(x));
-                        }
-                        break;
-                    }
-                    else {
-                        newbd.args = bd.args;
-                    }
+        List<BracedData> blocks = scriptEntry.getBracedSet();
+        if (blocks == null) {
+            blocks = buildBracedSet(scriptEntry);
+            scriptEntry.setBracedSet(blocks);
+        }
+        List<BracedData> res = blocks;
+        // Sections with old-style definitions in their arguments take them from this run's arguments
+        for (int i = 0; i < blocks.size(); i++) {
+            BracedData bd = blocks.get(i);
+            if (bd.needPatch) {
+                if (res == blocks) {
+                    res = new ArrayList<BracedData>(blocks);
+                }
+                BracedData newbd = new BracedData();
+                newbd.key = bd.key;
+                newbd.value = bd.value;
+                newbd.args = new ArrayList<String>(bd.aEnd - bd.aStart + 1);
+                for (int x = bd.aStart; x <= bd.aEnd; x++) {
+                    newbd.args.add(scriptEntry.args.get(x));
                 }
+                res.set(i, newbd);
             }
-            catch (Exception e) {
-                dB.echoError(scriptEntry.getResidingQueue(), e);
+        }
+        return res;
+    }
+
+    /**
+     * Copies the entries of a braced section for the given ScriptEntry to run, each set to run instantly,
+     * ready to be pushed onto its queue (see {@link ScriptQueue#pushEntries(ScriptEntry[])}).
+     *
+     * @param scriptEntry The ScriptEntry running the section.
+     * @param block       The section, from {@link #getBracedBlocks(ScriptEntry)}.
+     * @param extra       How many empty places to leave at the end of the array, for the caller to fill.
+     * @return The copied entries.
+     */
+    public static ScriptEntry[] copyBlock(ScriptEntry scriptEntry, BracedData block, int extra) {
+        ScriptEntry[] entries = new ScriptEntry[block.value.size() + extra];
+        try {
+            for (int i = 0; i < block.value.size(); i++) {
+                ScriptEntry sEntry = block.value.get(i);
+                ScriptEntry newEntry = sEntry.clone(sEntry.entryData);
+                newEntry.entryData.transferDataFrom(scriptEntry.entryData);
+                newEntry.setInstant(true);
+                entries[i] = newEntry;
             }
-            return res;
         }
+        catch (CloneNotSupportedException e) {
+            dB.echoError(scriptEntry.getResidingQueue(), e);
+        }
+        return entries;
+    }
+
+    /**
+     * Called as a script is built, once all the entries alongside this one are, to link the braced sections
+     * of the entry at the given index to the entries around it (EG, an 'if' to the 'else's following it).
+     * Entries linked in can be removed from the list.
+     *
+     * @param entries The entries built, in order.
+     * @param index   The index of the entry for this command.
+     */
+    public void linkBlocks(List<ScriptEntry> entries, int index) {
+        // Nothing to link by default
+    }
+
+    // Builds the braced sections of an entry, from the script contents inside it, or else its arguments
+    private static List<BracedData> buildBracedSet(ScriptEntry scriptEntry) {
+
+        boolean hyperdebug = dB.verbose;
+
+        // And a place to store all the final braces...
+        List<BracedData> bracedSections = new ArrayList<BracedData>();
 
         if (scriptEntry.getInsideList() != null) {
             List<Object> contents = scriptEntry.getInsideList();
@@ -90,10 +166,9 @@ public abstract class BracedCommand extends AbstractCommand {
             BracedData bd = new BracedData();
             bd.key = "base";
             bd.args = new ArrayList<String>();
-            bd.value = entries;
+            bd.value = entries == null ? new ArrayList<ScriptEntry>() : entries;
             bracedSections.add(bd);
-            scriptEntry.setBracedSet(bracedSections);
-            return getBracedCommands(scriptEntry);
+            return bracedSections;
         }
 
         // We need a place to store the commands being built at...
@@ -273,8 +348,7 @@ public abstract class BracedCommand extends AbstractCommand {
             }
         }
 
-        scriptEntry.setBracedSet(bracedSections);
-        return getBracedCommands(scriptEntry);
+        return bracedSections;
 
     }
 }
@@ -68,7 +68,7 @@ public class CommandExecuter {
                     output.append(" \"").append(arg).append("\"");
                 }
             }
-            DenizenCore.getImplementation().debugQueueExecute(scriptEntry, scriptEntry.getResidingQueue().id, output.toString());
+            DenizenCore.getImplementation().debugQueueExecute(scriptEntry, scriptEntry.getResidingQueue().getId(), output.toString());
             DenizenCore.getImplementation().debugCommandHeader(scriptEntry);
         }
         AbstractCommand command = scriptEntry.internal.actualCommand;
@@ -94,6 +94,10 @@ public class CommandExecuter {
         String saveName = null;
         try {
             scriptEntry.generateAHArgs();
+            if (scriptEntry.internal.hasTags || scriptEntry.internal.hasOldDefs || scriptEntry.internal.processArgs.length > 0) {
+                // Filling in arguments changes them in place
+                scriptEntry.ownArguments();
+            }
             boolean genned = false;
             if (scriptEntry.internal.actualCommand.shouldPreParse() && scriptEntry.internal.hasInstantTags) {
                 scriptEntry.regenerateArgsCur();
@@ -118,7 +122,7 @@ public class CommandExecuter {
                         aharg.hasSpecialPrefix = false;
                         scriptEntry.aHArgs.set(argId, aharg);
                         ScriptEntry.Argument argse = scriptEntry.args_cur.get(argId);
-                        argse.value = TagManager.genChain(parsed, scriptEntry);
+                        argse.value = TagManager.genChain(parsed, DenizenCore.getImplementation().getTagContext(scriptEntry), false);
                         argse.prefix = null;
                     }
                 }
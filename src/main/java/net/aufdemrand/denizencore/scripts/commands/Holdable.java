@@ -3,6 +3,9 @@ package net.aufdemrand.denizencore.scripts.commands;
 /**
  * Simply used to indicate that a command can be 'held', so we don't wait for
  * commands that will never mark themselves 'finished'.
+ * <p/>
+ * A queue waiting on a held command is parked until the command calls
+ * {@link net.aufdemrand.denizencore.scripts.ScriptEntry#setFinished(boolean)}, which wakes it.
  */
 public interface Holdable {
 
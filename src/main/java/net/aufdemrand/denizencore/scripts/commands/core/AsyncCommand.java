@@ -5,9 +5,9 @@ import net.aufdemrand.denizencore.exceptions.InvalidArgumentsException;
 import net.aufdemrand.denizencore.scripts.ScriptEntry;
 import net.aufdemrand.denizencore.scripts.commands.BracedCommand;
 import net.aufdemrand.denizencore.scripts.commands.Holdable;
-import net.aufdemrand.denizencore.scripts.queues.ScriptQueue;
 import net.aufdemrand.denizencore.scripts.queues.core.InstantQueue;
 
+import java.util.Arrays;
 import java.util.List;
 
 public class AsyncCommand extends BracedCommand implements Holdable {
@@ -19,15 +19,15 @@ public class AsyncCommand extends BracedCommand implements Holdable {
 
     @Override
     public void parseArgs(ScriptEntry scriptEntry) throws InvalidArgumentsException {
-        scriptEntry.addObject("braces", getBracedCommands(scriptEntry));
+        scriptEntry.addObject("braces", getBracedBlocks(scriptEntry));
     }
 
     @Override
     public void execute(ScriptEntry scriptEntry) throws CommandExecutionException {
 
-        InstantQueue queue = InstantQueue.getQueue(ScriptQueue.getNextId("ASYNC_COMMAND"));
+        InstantQueue queue = InstantQueue.newQueue("ASYNC_COMMAND");
         queue.run_async = true;
-        queue.addEntries(((List<BracedData>) scriptEntry.getObject("braces")).get(0).value);
+        queue.addEntries(Arrays.asList(copyBlock(scriptEntry, ((List<BracedData>) scriptEntry.getObject("braces")).get(0), 0)));
         queue.getAllDefinitions().putAll(scriptEntry.getResidingQueue().getAllDefinitions());
         queue.contextSource = scriptEntry.getResidingQueue().contextSource;
         queue.cachedContext = scriptEntry.getResidingQueue().cachedContext;
@@ -7,14 +7,91 @@ import net.aufdemrand.denizencore.objects.Element;
 import net.aufdemrand.denizencore.objects.aH;
 import net.aufdemrand.denizencore.scripts.ScriptEntry;
 import net.aufdemrand.denizencore.scripts.commands.BracedCommand;
+import net.aufdemrand.denizencore.tags.TagContext;
 import net.aufdemrand.denizencore.tags.TagManager;
 import net.aufdemrand.denizencore.utilities.CoreUtilities;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ChooseCommand extends BracedCommand {
 
+    /**
+     * The cases of a choose, worked out once from its sub-commands so that a choice is looked up rather than
+     * compared against each case in turn. Only cases with tags (and any sub-commands to report as unknown)
+     * still have to be gone through, and only those before the case found.
+     */
+    private static class CaseTable {
+
+        // The sub-commands the table is of
+        final List<ScriptEntry> cases;
+
+        // Index of the first case for each constant value (lowercase)
+        final Map<String, Integer> constants = new HashMap<String, Integer>();
+
+        // Index of the first default, or the end if there's none
+        int firstDefault;
+
+        // Indices of the cases with tags, and the unknown sub-commands, in order
+        int[] slow;
+
+        CaseTable(List<ScriptEntry> cases, TagContext context) {
+            this.cases = cases;
+            firstDefault = cases.size();
+            int[] found = new int[cases.size()];
+            int slowCount = 0;
+            for (int i = 0; i < cases.size(); i++) {
+                ScriptEntry se = cases.get(i);
+                String cmdName = CoreUtilities.toLowerCase(se.getCommandName());
+                if (cmdName.equals("default")) {
+                    firstDefault = i;
+                    break;
+                }
+                else if (cmdName.equals("case") && se.getArguments().size() == 1) {
+                    String arg = se.getArguments().get(0);
+                    if (arg.indexOf('>') == -1 || arg.length() < 3) {
+                        String value = CoreUtilities.toLowerCase(TagManager.tag(arg, context));
+                        if (!constants.containsKey(value)) {
+                            constants.put(value, i);
+                        }
+                        continue;
+                    }
+                }
+                found[slowCount++] = i;
+            }
+            slow = new int[slowCount];
+            System.arraycopy(found, 0, slow, 0, slowCount);
+        }
+
+        /**
+         * Returns the sub-command chosen, or null if none is.
+         */
+        ScriptEntry choose(String choice_low, TagContext context) {
+            Integer constant = constants.get(choice_low);
+            int chosen = constant != null && constant < firstDefault ? constant : firstDefault;
+            for (int index : slow) {
+                if (index >= chosen) {
+                    break;
+                }
+                ScriptEntry se = cases.get(index);
+                String cmdName = CoreUtilities.toLowerCase(se.getCommandName());
+                if (!cmdName.equals("case")) {
+                    dB.echoError("Unknown choice sub-command '" + cmdName + "'!");
+                }
+                else if (se.getArguments().size() != 1) {
+                    dB.echoError("Unknown choice sub-command '" + se.toString() + "'!");
+                }
+                else if (CoreUtilities.toLowerCase(TagManager.tag(se.getArguments().get(0), context)).equals(choice_low)) {
+                    chosen = index;
+                    break;
+                }
+            }
+            return chosen < cases.size() ? cases.get(chosen) : null;
+        }
+    }
+
     @Override
     public void onEnable() {
         setBraced();
@@ -27,7 +104,7 @@ public class ChooseCommand extends BracedCommand {
 
             if (!scriptEntry.hasObject("choice")) {
                 scriptEntry.addObject("choice", arg.asElement());
-                scriptEntry.addObject("braces", getBracedCommands(scriptEntry));
+                scriptEntry.addObject("braces", getBracedBlocks(scriptEntry));
                 break;
             }
 
@@ -67,52 +144,30 @@ public class ChooseCommand extends BracedCommand {
 
         String choice_low = CoreUtilities.toLowerCase(choice.asString());
 
-        ScriptEntry result = null;
-
-        for (ScriptEntry se : bracedCommandsList) {
-            String cmdName = CoreUtilities.toLowerCase(se.getCommandName());
-            if (cmdName.equals("default")) {
-                result = se;
-                break;
-            }
-            else if (cmdName.equals("case")) {
-                if (se.getArguments().size() == 1) {
-                    String arg = TagManager.tag(se.getArguments().get(0), DenizenCore.getImplementation().getTagContextFor(scriptEntry, false));
-                    if (CoreUtilities.toLowerCase(arg).equals(choice_low)) {
-                        result = se;
-                        break;
-                    }
-                }
-                else {
-                    dB.echoError("Unknown choice sub-command '" + se.toString() + "'!");
-                }
-            }
-            else {
-                dB.echoError("Unknown choice sub-command '" + cmdName + "'!");
-            }
+        TagContext context = DenizenCore.getImplementation().getTagContextFor(scriptEntry, false);
+        Object data = scriptEntry.internal.commandData;
+        CaseTable table = data instanceof CaseTable ? (CaseTable) data : null;
+        if (table == null || table.cases != bracedCommandsList) {
+            table = new CaseTable(bracedCommandsList, context);
+            scriptEntry.internal.commandData = table;
         }
 
+        ScriptEntry result = table.choose(choice_low, context);
+
         if (result == null) {
             dB.echoDebug(scriptEntry, "No result!");
             return;
         }
 
-        List<BracedData> new_commands = getBracedCommands(result);
+        List<BracedData> new_commands = getBracedBlocks(result);
 
         if (new_commands == null || new_commands.isEmpty()) {
             dB.echoError(scriptEntry.getResidingQueue(), "Empty case sub-commands (internal)!");
             return;
         }
 
-        List<ScriptEntry> new_command_list = new_commands.get(0).value;
-
-        for (int i = 0; i < new_command_list.size(); i++) {
-            new_command_list.get(i).setInstant(true);
-            new_command_list.get(i).addObject("reqid", scriptEntry.getObject("reqid"));
-        }
-
         scriptEntry.setInstant(true);
 
-        scriptEntry.getResidingQueue().injectEntries(new_command_list, 0);
+        scriptEntry.getResidingQueue().pushEntries(copyBlock(scriptEntry, new_commands.get(0), 0));
     }
 }
@@ -190,16 +190,14 @@ public class Comparable {
 
     private void compare_as_numbers() {
 
-        outcome = false;
-
-        Double comparable;
+        double comparable;
         if (this.comparable instanceof Double) {
             comparable = (Double) this.comparable;
         }
         else {
             comparable = ((Long) this.comparable).doubleValue();
         }
-        Double comparedto;
+        double comparedto;
         if (this.comparedto instanceof Double) {
             comparedto = (Double) this.comparedto;
         }
@@ -207,38 +205,33 @@ public class Comparable {
             comparedto = ((Long) this.comparedto).doubleValue();
         }
 
+        outcome = compareNumbers(operator, comparable, comparedto);
+    }
+
+
+    /**
+     * Compares two numbers, as a comparable whose operands are both numbers does.
+     */
+    public static boolean compareNumbers(Operator operator, double comparable, double comparedto) {
+
         switch (operator) {
 
             case EQUALS:
-                if (comparable.doubleValue() == comparedto.doubleValue()) {
-                    outcome = true;
-                }
-                break;
+                return comparable == comparedto;
 
             case OR_MORE:
-                if (comparable.compareTo(comparedto) >= 0) {
-                    outcome = true;
-                }
-                break;
+                return Double.compare(comparable, comparedto) >= 0;
 
             case OR_LESS:
-                if (comparable.compareTo(comparedto) <= 0) {
-                    outcome = true;
-                }
-                break;
+                return Double.compare(comparable, comparedto) <= 0;
 
             case MORE:
-                if (comparable.compareTo(comparedto) > 0) {
-                    outcome = true;
-                }
-                break;
+                return Double.compare(comparable, comparedto) > 0;
 
             case LESS:
-                if (comparable.compareTo(comparedto) < 0) {
-                    outcome = true;
-                }
-                break;
+                return Double.compare(comparable, comparedto) < 0;
         }
+        return false;
     }
 
 
@@ -313,14 +306,19 @@ public class Comparable {
     }
 
     private void compare_as_strings() {
+        outcome = compareStrings(operator, String.valueOf(this.comparable), String.valueOf(this.comparedto));
+    }
 
-        outcome = false;
 
-        String comparable = String.valueOf(this.comparable);
-        String comparedto = String.valueOf(this.comparedto);
+    /**
+     * Compares two strings, as a comparable whose operands are (or are treated as) text does.
+     */
+    public static boolean compareStrings(Operator operator, String comparable, String comparedto) {
+
+        boolean outcome = false;
 
         if (comparable == null || comparedto == null) {
-            return;
+            return false;
         }
 
         switch (operator) {
@@ -403,6 +401,7 @@ public class Comparable {
 
                 break;
         }
+        return outcome;
     }
 
     public String log(String str) {
@@ -54,7 +54,7 @@ public class DefineCommand extends AbstractCommand {
         Element remove = scriptEntry.getElement("remove");
 
         if (scriptEntry.dbCallShouldDebug()) {
-            dB.report(scriptEntry, getName(), aH.debugObj("queue", scriptEntry.getResidingQueue().id)
+            dB.report(scriptEntry, getName(), aH.debugObj("queue", scriptEntry.getResidingQueue().getId())
                     + definition.debug()
                     + value.debug()
                     + (remove != null ? remove.debug() : ""));
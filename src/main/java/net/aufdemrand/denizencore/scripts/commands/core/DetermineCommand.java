@@ -25,11 +25,11 @@ public class DetermineCommand extends AbstractCommand {
     // Default 'DETERMINE_NONE' value.
     public static String DETERMINE_NONE = "none";
 
-    // Map for keeping track of cache
-    // Key: ID, Value: outcome
-    private static Map<Long, dList> cache = new ConcurrentHashMap<Long, dList>(8, 0.9f, 1);
+    // Determinations of queues given an ID with ScriptQueue#setReqId, by ID
+    private static Map<Long, dList> outcomes = new ConcurrentHashMap<Long, dList>(8, 0.9f, 1);
 
     // Start at 0
+    @Deprecated
     public static long uniqueId = 0;
 
 
@@ -38,8 +38,10 @@ public class DetermineCommand extends AbstractCommand {
      * a unique id. Determinations are very short lived.
      *
      * @return long ID
+     * @deprecated make the queue determinable with ScriptQueue#setDeterminable, and read ScriptQueue#getDeterminations.
      */
-    public static long getNewId() {
+    @Deprecated
+    public static synchronized long getNewId() {
         // Just in case? Start over if already max_value.
         if (uniqueId == Long.MAX_VALUE) {
             uniqueId = 0;
@@ -50,26 +52,51 @@ public class DetermineCommand extends AbstractCommand {
 
 
     /**
-     * Checks the cache for existence of an outcome.
+     * Keeps a determinable queue's determinations under an ID, for the helpers below.
+     * Called by ScriptQueue#setReqId.
+     */
+    public static void trackOutcome(long id, dList determinations) {
+        outcomes.put(id, determinations);
+    }
+
+
+    /**
+     * Forgets the determinations under an ID if there aren't any, as there won't be any more.
+     * Called when the queue given the ID is done.
+     */
+    public static void untrackIfEmpty(long id) {
+        dList outcome = outcomes.get(id);
+        if (outcome != null && outcome.isEmpty()) {
+            outcomes.remove(id, outcome);
+        }
+    }
+
+
+    /**
+     * Checks for existence of an outcome.
      *
      * @param id the outcome id to check
-     * @return if the cache has the outcome
+     * @return if there's an outcome
+     * @deprecated use ScriptQueue#getDeterminations.
      */
+    @Deprecated
     public static boolean hasOutcome(long id) {
-        return cache.containsKey(id) && !cache.get(id).isEmpty();
+        dList outcome = outcomes.get(id);
+        return outcome != null && !outcome.isEmpty();
     }
 
 
     /**
-     * Gets the outcome, and removes it from the cache.
+     * Gets the outcome, and stops keeping it.
      *
      * @param id the outcome id to check
-     * @return the outcome
+     * @return the outcome, or null if there's none
+     * @deprecated use ScriptQueue#getDeterminations.
      */
+    @Deprecated
     public static dList getOutcome(long id) {
-        dList outcome = cache.get(id);
-        cache.remove(id);
-        return outcome;
+        dList outcome = outcomes.remove(id);
+        return outcome == null || outcome.isEmpty() ? null : outcome;
     }
 
 
@@ -79,9 +106,12 @@ public class DetermineCommand extends AbstractCommand {
      *
      * @param id the outcome id to check
      * @return the current value of the outcome
+     * @deprecated use ScriptQueue#getDeterminations.
      */
+    @Deprecated
     public static String readOutcome(long id) {
-        return cache.get(id).isEmpty() ? DETERMINE_NONE : cache.get(id).get(0);
+        dList outcome = outcomes.get(id);
+        return outcome == null || outcome.isEmpty() ? DETERMINE_NONE : outcome.get(0);
     }
 
 
@@ -134,22 +164,12 @@ public class DetermineCommand extends AbstractCommand {
         // Fetch the ScriptEntry elements
         Boolean passively = scriptEntry.getElement("passively").asBoolean();
 
-        Long uniqueId = (Long) scriptEntry.getObject("reqid");
-
-        // Useful for debug
-        if (uniqueId == null) {
+        // Hand the outcome to the queue, for whatever's waiting on it
+        if (!scriptEntry.getResidingQueue().determine(outcomeObj)) {
             dB.echoError(scriptEntry.getResidingQueue(), "Cannot use determine in this queue!");
             return;
         }
 
-        // Store the outcome in the cache
-        dList strs = cache.get(uniqueId);
-        if (strs == null) {
-            strs = new dList();
-            cache.put(uniqueId, strs);
-        }
-        strs.addObject(outcomeObj);
-
         if (!passively) {
             // Stop the queue by clearing the remainder of it.
             scriptEntry.getResidingQueue().clear();
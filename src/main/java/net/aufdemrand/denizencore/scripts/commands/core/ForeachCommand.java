@@ -18,6 +18,19 @@ public class ForeachCommand extends BracedCommand {
     private class ForeachData {
         public int index;
         public dList list;
+
+        // The loop body, as built with the script, copied afresh for each pass
+        public BracedData body;
+
+        // Ends each pass, cloned along with the body
+        public ScriptEntry callback;
+    }
+
+    // Builds the entries for a pass of the loop, ending with a callback
+    private ScriptEntry[] buildPass(ScriptEntry owner, ForeachData data) throws CloneNotSupportedException {
+        ScriptEntry[] pass = copyBlock(owner, data.body, 1);
+        pass[pass.length - 1] = data.callback.clone().setInstant(true);
+        return pass;
     }
 
     @Override
@@ -50,7 +63,7 @@ public class ForeachCommand extends BracedCommand {
 
             else if (!scriptEntry.hasObject("list")) {
                 scriptEntry.addObject("list", dList.valueOf(arg.raw_value));
-                scriptEntry.addObject("braces", getBracedCommands(scriptEntry));
+                scriptEntry.addObject("braces", getBracedBlocks(scriptEntry));
                 break;
             }
 
@@ -83,27 +96,7 @@ public class ForeachCommand extends BracedCommand {
             if (scriptEntry.dbCallShouldDebug()) {
                 dB.report(scriptEntry, getName(), stop.debug());
             }
-            boolean hasnext = false;
-            for (int i = 0; i < scriptEntry.getResidingQueue().getQueueSize(); i++) {
-                ScriptEntry entry = scriptEntry.getResidingQueue().getEntry(i);
-                List<String> args = entry.getOriginalArguments();
-                if (entry.getCommandName().equalsIgnoreCase("foreach") && args.size() > 0 && args.get(0).equalsIgnoreCase("\0CALLBACK")) {
-                    hasnext = true;
-                    break;
-                }
-            }
-            if (hasnext) {
-                while (scriptEntry.getResidingQueue().getQueueSize() > 0) {
-                    ScriptEntry entry = scriptEntry.getResidingQueue().getEntry(0);
-                    List<String> args = entry.getOriginalArguments();
-                    if (entry.getCommandName().equalsIgnoreCase("foreach") && args.size() > 0 && args.get(0).equalsIgnoreCase("\0CALLBACK")) {
-                        scriptEntry.getResidingQueue().removeEntry(0);
-                        break;
-                    }
-                    scriptEntry.getResidingQueue().removeEntry(0);
-                }
-            }
-            else {
+            if (scriptEntry.getResidingQueue().skipLoop(true) == null) {
                 dB.echoError(scriptEntry.getResidingQueue(), "Cannot stop foreach: not in one!");
             }
             return;
@@ -113,57 +106,26 @@ public class ForeachCommand extends BracedCommand {
             if (scriptEntry.dbCallShouldDebug()) {
                 dB.report(scriptEntry, getName(), next.debug());
             }
-            boolean hasnext = false;
-            for (int i = 0; i < scriptEntry.getResidingQueue().getQueueSize(); i++) {
-                ScriptEntry entry = scriptEntry.getResidingQueue().getEntry(i);
-                List<String> args = entry.getOriginalArguments();
-                if (entry.getCommandName().equalsIgnoreCase("foreach") && args.size() > 0 && args.get(0).equalsIgnoreCase("\0CALLBACK")) {
-                    hasnext = true;
-                    break;
-                }
-            }
-            if (hasnext) {
-                while (scriptEntry.getResidingQueue().getQueueSize() > 0) {
-                    ScriptEntry entry = scriptEntry.getResidingQueue().getEntry(0);
-                    List<String> args = entry.getOriginalArguments();
-                    if (entry.getCommandName().equalsIgnoreCase("foreach") && args.size() > 0 && args.get(0).equalsIgnoreCase("\0CALLBACK")) {
-                        break;
-                    }
-                    scriptEntry.getResidingQueue().removeEntry(0);
-                }
-            }
-            else {
+            if (scriptEntry.getResidingQueue().skipLoop(false) == null) {
                 dB.echoError(scriptEntry.getResidingQueue(), "Cannot stop foreach: not in one!");
             }
             return;
         }
         else if (callback != null && callback.asBoolean()) {
-            if (scriptEntry.getOwner() != null && (scriptEntry.getOwner().getCommandName().equalsIgnoreCase("foreach") ||
-                    scriptEntry.getOwner().getBracedSet() == null || scriptEntry.getOwner().getBracedSet().size() == 0 ||
-                    scriptEntry.getBracedSet().get(0).value.get(scriptEntry.getBracedSet().get(0).value.size() - 1) != scriptEntry)) {
-                ForeachData data = (ForeachData) scriptEntry.getOwner().getData();
+            ScriptEntry owner = scriptEntry.getOwner();
+            if (owner != null && owner.getData() instanceof ForeachData) {
+                ForeachData data = (ForeachData) owner.getData();
                 data.index++;
                 if (data.index <= data.list.size()) {
                     dB.echoDebug(scriptEntry, DebugElement.Header, "Foreach loop " + data.index);
                     scriptEntry.getResidingQueue().addDefinition("loop_index", String.valueOf(data.index));
                     scriptEntry.getResidingQueue().addDefinition("value", String.valueOf(data.list.get(data.index - 1)));
-                    List<ScriptEntry> bracedCommands = BracedCommand.getBracedCommands(scriptEntry.getOwner()).get(0).value;
-                    ScriptEntry callbackEntry = null;
                     try {
-                        callbackEntry = new ScriptEntry("FOREACH", new String[]{"\0CALLBACK"},
-                                (scriptEntry.getScript() != null ? scriptEntry.getScript().getContainer() : null));
-                        callbackEntry.copyFrom(scriptEntry);
+                        scriptEntry.getResidingQueue().pushLoop(buildPass(owner, data), owner);
                     }
-                    catch (ScriptEntryCreationException e) {
+                    catch (CloneNotSupportedException e) {
                         dB.echoError(scriptEntry.getResidingQueue(), e);
                     }
-                    callbackEntry.setOwner(scriptEntry.getOwner());
-                    bracedCommands.add(callbackEntry);
-                    for (int i = 0; i < bracedCommands.size(); i++) {
-                        bracedCommands.get(i).setInstant(true);
-                        bracedCommands.get(i).addObject("reqid", scriptEntry.getObject("reqid"));
-                    }
-                    scriptEntry.getResidingQueue().injectEntries(bracedCommands, 0);
                 }
                 else {
                     dB.echoDebug(scriptEntry, DebugElement.Header, "Foreach loop complete");
@@ -203,26 +165,27 @@ public class ForeachCommand extends BracedCommand {
             ForeachData datum = new ForeachData();
             datum.list = list;
             datum.index = 1;
-            scriptEntry.setData(datum);
-            ScriptEntry callbackEntry = null;
+            datum.body = bdlist.get(0);
             try {
-                callbackEntry = new ScriptEntry("FOREACH", new String[]{"\0CALLBACK"},
+                datum.callback = new ScriptEntry("FOREACH", new String[]{"\0CALLBACK"},
                         (scriptEntry.getScript() != null ? scriptEntry.getScript().getContainer() : null));
-                callbackEntry.copyFrom(scriptEntry);
+                datum.callback.copyFrom(scriptEntry);
             }
             catch (ScriptEntryCreationException e) {
                 dB.echoError(scriptEntry.getResidingQueue(), e);
+                return;
             }
-            callbackEntry.setOwner(scriptEntry);
-            bracedCommandsList.add(callbackEntry);
+            datum.callback.setOwner(scriptEntry);
+            scriptEntry.setData(datum);
             scriptEntry.getResidingQueue().addDefinition("value", list.get(0));
             scriptEntry.getResidingQueue().addDefinition("loop_index", "1");
-            for (int i = 0; i < bracedCommandsList.size(); i++) {
-                bracedCommandsList.get(i).setInstant(true);
-                bracedCommandsList.get(i).addObject("reqid", scriptEntry.getObject("reqid"));
-            }
             scriptEntry.setInstant(true);
-            scriptEntry.getResidingQueue().injectEntries(bracedCommandsList, 0);
+            try {
+                scriptEntry.getResidingQueue().pushLoop(buildPass(scriptEntry, datum), scriptEntry);
+            }
+            catch (CloneNotSupportedException e) {
+                dB.echoError(scriptEntry.getResidingQueue(), e);
+            }
         }
     }
 }
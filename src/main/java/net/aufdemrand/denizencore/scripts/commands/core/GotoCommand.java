@@ -8,8 +8,6 @@ import net.aufdemrand.denizencore.scripts.ScriptEntry;
 import net.aufdemrand.denizencore.scripts.commands.AbstractCommand;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
 
-import java.util.List;
-
 public class GotoCommand extends AbstractCommand {
 
     @Override
@@ -47,26 +45,7 @@ public class GotoCommand extends AbstractCommand {
         }
 
         // Jump forth
-        boolean hasmark = false;
-        for (int i = 0; i < scriptEntry.getResidingQueue().getQueueSize(); i++) {
-            ScriptEntry entry = scriptEntry.getResidingQueue().getEntry(i);
-            List<String> args = entry.getOriginalArguments();
-            if (entry.getCommandName().equalsIgnoreCase("mark") && args.size() > 0 && args.get(0).equalsIgnoreCase(mName.asString())) {
-                hasmark = true;
-                break;
-            }
-        }
-        if (hasmark) {
-            while (scriptEntry.getResidingQueue().getQueueSize() > 0) {
-                ScriptEntry entry = scriptEntry.getResidingQueue().getEntry(0);
-                List<String> args = entry.getOriginalArguments();
-                if (entry.getCommandName().equalsIgnoreCase("mark") && args.size() > 0 && args.get(0).equalsIgnoreCase(mName.asString())) {
-                    break;
-                }
-                scriptEntry.getResidingQueue().removeEntry(0);
-            }
-        }
-        else {
+        if (!scriptEntry.getResidingQueue().jumpTo(mName.asString())) {
             dB.echoError(scriptEntry.getResidingQueue(), "Cannot go to that location - doesn't seem to exist!");
         }
     }
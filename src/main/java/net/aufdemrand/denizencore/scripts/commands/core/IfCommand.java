@@ -4,8 +4,10 @@ import net.aufdemrand.denizencore.DenizenCore;
 import net.aufdemrand.denizencore.exceptions.CommandExecutionException;
 import net.aufdemrand.denizencore.exceptions.InvalidArgumentsException;
 import net.aufdemrand.denizencore.objects.aH;
+import net.aufdemrand.denizencore.objects.dList;
 import net.aufdemrand.denizencore.scripts.ScriptEntry;
 import net.aufdemrand.denizencore.scripts.commands.BracedCommand;
+import net.aufdemrand.denizencore.tags.TagContext;
 import net.aufdemrand.denizencore.tags.TagManager;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
 
@@ -20,6 +22,41 @@ public class IfCommand extends BracedCommand {
         setParseArgs(false);
     }
 
+    @Override
+    public void linkBlocks(List<ScriptEntry> entries, int index) {
+        ScriptEntry scriptEntry = entries.get(index);
+        if (scriptEntry.getInsideList() == null || scriptEntry.getBracedSet() == null || scriptEntry.getBracedSet().isEmpty()) {
+            return;
+        }
+        // Take in the 'else's following, as further sections of the 'if'
+        List<BracedData> allData = new ArrayList<BracedData>();
+        BracedData ifRef = scriptEntry.getBracedSet().get(0);
+        ifRef.key = scriptEntry.toString();
+        ifRef.args = new ArrayList<String>();
+        ifRef.args.add("if");
+        ifRef.args.addAll(scriptEntry.getOriginalArguments());
+        allData.add(ifRef);
+        while (index + 1 < entries.size()) {
+            ScriptEntry nextEntry = entries.get(index + 1);
+            if (!(nextEntry.getCommand() instanceof ElseCommand)) {
+                break;
+            }
+            if (nextEntry.getInsideList() == null) {
+                dB.echoError("Upcoming else command is mis-formatted!");
+                break;
+            }
+            entries.remove(index + 1);
+            BracedData elseRef = new BracedData();
+            elseRef.key = nextEntry.toString();
+            elseRef.args = new ArrayList<String>();
+            elseRef.args.add("else");
+            elseRef.args.addAll(nextEntry.getOriginalArguments());
+            elseRef.value = getBracedBlocks(nextEntry).get(0).value;
+            allData.add(elseRef);
+        }
+        scriptEntry.setBracedSet(allData);
+    }
+
     @Override
     public void parseArgs(ScriptEntry scriptEntry) throws InvalidArgumentsException {
 
@@ -35,31 +72,8 @@ public class IfCommand extends BracedCommand {
 
         boolean has_brace = scriptEntry.getInsideList() != null;
         if (has_brace) {
-            List<BracedData> allData = new ArrayList<BracedData>();
-            BracedData ifRef = getBracedCommands(scriptEntry).get(0);
-            ifRef.key = scriptEntry.toString();
-            ifRef.args = new ArrayList<>();
-            ifRef.args.add("if");
-            ifRef.args.addAll(scriptEntry.getOriginalArguments());
-            allData.add(ifRef);
-            while (scriptEntry.getResidingQueue().script_entries.size() > 0) {
-                ScriptEntry nextEntry = scriptEntry.getResidingQueue().script_entries.get(0);
-                if (!(nextEntry.getCommand() instanceof ElseCommand)) {
-                    break;
-                }
-                if (nextEntry.getInsideList() == null) {
-                    dB.echoError(scriptEntry.getResidingQueue(), "Upcoming else command is mis-formatted!");
-                    break;
-                }
-                scriptEntry.getResidingQueue().script_entries.remove(0);
-                BracedData elseRef = getBracedCommands(nextEntry).get(0);
-                elseRef.key = nextEntry.toString();
-                elseRef.args = new ArrayList<>();
-                elseRef.args.add("else");
-                elseRef.args.addAll(nextEntry.getOriginalArguments());
-                allData.add(elseRef);
-            }
-            scriptEntry.addObject("braces", allData);
+            // Any 'else's were linked in as the script was built
+            scriptEntry.addObject("braces", getBracedBlocks(scriptEntry));
         }
         else {
             for (String arg : scriptEntry.getArguments()) {
@@ -72,7 +86,7 @@ public class IfCommand extends BracedCommand {
                 }
             }
             if (has_brace) {
-                scriptEntry.addObject("braces", getBracedCommands(scriptEntry));
+                scriptEntry.addObject("braces", getBracedBlocks(scriptEntry));
             }
         }
 
@@ -127,7 +141,20 @@ public class IfCommand extends BracedCommand {
             dB.log("comparisons=" + comparisons + ", sc:" + subcommand + ", ec:" + elsecommand);
         }
 
-        boolean first_set = new ArgComparer().compare(comparisons, scriptEntry);
+        TagContext context = DenizenCore.getImplementation().getTagContextFor(scriptEntry, false);
+        Condition condition;
+        if (scriptEntry.internal.hasOldDefs) {
+            // Old-style definitions are filled into the arguments themselves, so can differ each run
+            condition = Condition.compile(comparisons, context);
+        }
+        else {
+            condition = (Condition) scriptEntry.internal.commandData;
+            if (condition == null) {
+                condition = Condition.compile(comparisons, context);
+                scriptEntry.internal.commandData = condition;
+            }
+        }
+        boolean first_set = condition.evaluate(scriptEntry, context);
         if (first_set && subcommand != null && subcommand.size() > 0) {
             executeCommandList(subcommand, scriptEntry);
         }
@@ -140,12 +167,7 @@ public class IfCommand extends BracedCommand {
                     dB.log("Running the first set");
                 }
                 scriptEntry.setInstant(true);
-                List<ScriptEntry> bracedCommandsList = braces.get(0).value;
-                for (int i = 0; i < bracedCommandsList.size(); i++) {
-                    bracedCommandsList.get(i).setInstant(true);
-                    bracedCommandsList.get(i).addObject("reqid", scriptEntry.getObject("reqid"));
-                }
-                scriptEntry.getResidingQueue().injectEntries(bracedCommandsList, 0);
+                scriptEntry.getResidingQueue().pushEntries(copyBlock(scriptEntry, braces.get(0), 0));
             }
             else {
                 for (int z = 1; z < braces.size(); z++) {
@@ -169,18 +191,18 @@ public class IfCommand extends BracedCommand {
                         should_fire = true;
                     }
                     if (!should_fire) {
-                        if (new ArgComparer().compare(key.subList(x, key.size()), scriptEntry)) {
+                        Condition elseCondition = (Condition) braceSet.commandData;
+                        if (elseCondition == null) {
+                            elseCondition = Condition.compile(key.subList(x, key.size()), context);
+                            braceSet.commandData = elseCondition;
+                        }
+                        if (elseCondition.evaluate(scriptEntry, context)) {
                             should_fire = true;
                         }
                     }
                     if (should_fire) {
                         scriptEntry.setInstant(true);
-                        List<ScriptEntry> bracedCommandsList = braceSet.value;
-                        for (int i = 0; i < bracedCommandsList.size(); i++) {
-                            bracedCommandsList.get(i).setInstant(true);
-                            bracedCommandsList.get(i).addObject("reqid", scriptEntry.getObject("reqid"));
-                        }
-                        scriptEntry.getResidingQueue().injectEntries(bracedCommandsList, 0);
+                        scriptEntry.getResidingQueue().pushEntries(copyBlock(scriptEntry, braceSet, 0));
                         break;
                     }
                 }
@@ -197,7 +219,6 @@ public class IfCommand extends BracedCommand {
                     scriptEntry.getScript() != null ? scriptEntry.getScript().getContainer() : null);
             entry.entryData = scriptEntry.entryData.clone();
             entry.setInstant(true);
-            entry.addObject("reqid", scriptEntry.getObject("reqid"));
             scriptEntry.getResidingQueue().injectEntry(entry, 0);
         }
         catch (Exception e) {
@@ -205,6 +226,415 @@ public class IfCommand extends BracedCommand {
         }
     }
 
+    /**
+     * A condition compiled from the comparison arguments of an if (or else if), to evaluate as often as needed.
+     * Groups the same way as {@link ArgComparer}, but the arguments are only split up once, and
+     * constant operands are only read and parsed once, leaving just the tags to fill in each run.
+     */
+    public static abstract class Condition {
+
+        private static final Condition FALSE = new Fail(null);
+
+        public abstract boolean evaluate(ScriptEntry scriptEntry, TagContext context);
+
+        /**
+         * Compiles a list of comparison arguments into a condition.
+         *
+         * @param args    the arguments, which aren't changed.
+         * @param context a tag context to read any constant operands in.
+         * @return the compiled condition.
+         */
+        public static Condition compile(List<String> args, TagContext context) {
+            return compileInternal(new ArrayList<Object>(args), context);
+        }
+
+        private static String text(Object arg) {
+            return arg instanceof String ? (String) arg : "<UnTaggedComparison>";
+        }
+
+        private static Condition single(Object arg, TagContext context) {
+            return arg instanceof Group ? (Group) arg : new Truth(new Operand(arg, context));
+        }
+
+        private static Condition compileInternal(List<Object> args, TagContext context) {
+            if (args.size() == 0) {
+                return FALSE;
+            }
+            else if (args.size() == 1) {
+                return single(args.get(0), context);
+            }
+            for (int i = 0; i < args.size(); i++) {
+                String arg = text(args.get(i));
+                if (arg.equals("(") || arg.equals("!(")) {
+                    List<Object> subargs = new ArrayList<Object>();
+                    int count = 0;
+                    boolean found = false;
+                    for (int x = i + 1; x < args.size(); x++) {
+                        String xarg = text(args.get(x));
+                        if (xarg.equals("(")) {
+                            count++;
+                            subargs.add("(");
+                        }
+                        else if (xarg.equals(")")) {
+                            count--;
+                            if (count == -1) {
+                                Group group = new Group(compileInternal(subargs, context), arg.startsWith("!"));
+                                for (int c = 0; c < (x - i) + 1; c++) {
+                                    args.remove(i);
+                                }
+                                args.add(i, group);
+                                found = true;
+                                break;
+                            }
+                            else {
+                                subargs.add(")");
+                            }
+                        }
+                        else {
+                            subargs.add(args.get(x));
+                        }
+                    }
+                    if (!found) {
+                        return FALSE;
+                    }
+                }
+                else if (arg.equals(")")) {
+                    return FALSE;
+                }
+            }
+            if (args.size() == 1) {
+                return single(args.get(0), context);
+            }
+            for (int i = 0; i < args.size(); i++) {
+                String arg = text(args.get(i));
+                boolean or = arg.equalsIgnoreCase("||");
+                if (or || arg.equalsIgnoreCase("&&")) {
+                    return new Both(compileInternal(new ArrayList<Object>(args.subList(0, i)), context),
+                            compileInternal(new ArrayList<Object>(args.subList(i + 1, args.size())), context), or);
+                }
+            }
+            if (args.size() == 2) {
+                return FALSE;
+            }
+            String arg = text(args.get(1));
+            boolean negative = false;
+            if (arg.startsWith("!")) {
+                arg = arg.substring(1);
+                negative = true;
+            }
+            if (arg.equals("==") || arg.equals("=")) {
+                arg = "EQUALS";
+            }
+            else if (arg.equals(">=")) {
+                arg = "OR_MORE";
+            }
+            else if (arg.equals("<=")) {
+                arg = "OR_LESS";
+            }
+            else if (arg.equals("<")) {
+                arg = "LESS";
+            }
+            else if (arg.equals(">")) {
+                arg = "MORE";
+            }
+            else if (arg.equals("||")) {
+                arg = "OR";
+            }
+            else if (arg.equals("&&")) {
+                arg = "AND";
+            }
+            Comparable.Operator operator;
+            try {
+                operator = Comparable.Operator.valueOf(arg.toUpperCase());
+            }
+            catch (IllegalArgumentException ex) {
+                return new Fail(ex.getMessage());
+            }
+            return new Compare(new Operand(args.get(0), context), operator, negative, new Operand(args.get(2), context));
+        }
+    }
+
+    // Always false, reporting an error if it has one
+    private static class Fail extends Condition {
+
+        final String error;
+
+        Fail(String error) {
+            this.error = error;
+        }
+
+        @Override
+        public boolean evaluate(ScriptEntry scriptEntry, TagContext context) {
+            if (error != null) {
+                dB.echoError(error);
+            }
+            return false;
+        }
+    }
+
+    // A parenthesized group, optionally negated
+    private static class Group extends Condition {
+
+        final Condition inside;
+
+        final boolean flip;
+
+        Group(Condition inside, boolean flip) {
+            this.inside = inside;
+            this.flip = flip;
+        }
+
+        @Override
+        public boolean evaluate(ScriptEntry scriptEntry, TagContext context) {
+            return flip != inside.evaluate(scriptEntry, context);
+        }
+    }
+
+    // Two conditions joined by || or &&, the second only evaluated if it's needed
+    private static class Both extends Condition {
+
+        final Condition first;
+
+        final Condition second;
+
+        final boolean or;
+
+        Both(Condition first, Condition second, boolean or) {
+            this.first = first;
+            this.second = second;
+            this.or = or;
+        }
+
+        @Override
+        public boolean evaluate(ScriptEntry scriptEntry, TagContext context) {
+            if (first.evaluate(scriptEntry, context) == or) {
+                return or;
+            }
+            return second.evaluate(scriptEntry, context);
+        }
+    }
+
+    // A single operand, true if it reads 'true' (or anything else, if negated with a '!')
+    private static class Truth extends Condition {
+
+        final Operand operand;
+
+        Truth(Operand operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public boolean evaluate(ScriptEntry scriptEntry, TagContext context) {
+            return operand.negative != operand.getValue(scriptEntry, context).equals("true");
+        }
+    }
+
+    // Two operands compared by an operator
+    private static class Compare extends Condition {
+
+        final Operand comparable;
+
+        final Comparable.Operator operator;
+
+        final boolean negative;
+
+        final Operand comparedto;
+
+        Compare(Operand comparable, Comparable.Operator operator, boolean negative, Operand comparedto) {
+            this.comparable = comparable;
+            this.operator = operator;
+            this.negative = negative;
+            this.comparedto = comparedto;
+        }
+
+        // Compares as a Comparable would, but with the constant sides' number and list forms worked out already
+        @Override
+        public boolean evaluate(ScriptEntry scriptEntry, TagContext context) {
+            try {
+                String left = comparable.getText(scriptEntry, context);
+                String right = comparedto.getText(scriptEntry, context);
+                boolean leftIsNumber;
+                double leftNumber = 0;
+                dList leftList = null;
+                if (comparable.parsed) {
+                    leftIsNumber = comparable.number != null;
+                    if (leftIsNumber) {
+                        leftNumber = comparable.number;
+                    }
+                    else {
+                        leftList = comparable.list;
+                    }
+                }
+                else {
+                    leftIsNumber = left.length() > 0 && aH.matchesDouble(left);
+                    if (leftIsNumber) {
+                        leftNumber = aH.getDoubleFrom(left);
+                    }
+                    else if (left.length() > 0 && dList.matches(left)) {
+                        leftList = dList.valueOf(left);
+                    }
+                }
+                boolean rightIsNumber = false;
+                double rightNumber = 0;
+                dList rightList = null;
+                if (operator != Comparable.Operator.MATCHES) {
+                    if (leftIsNumber) {
+                        if (comparedto.parsed) {
+                            rightIsNumber = comparedto.number != null;
+                            if (rightIsNumber) {
+                                rightNumber = comparedto.number;
+                            }
+                        }
+                        else {
+                            rightIsNumber = aH.matchesDouble(right);
+                            if (rightIsNumber) {
+                                rightNumber = aH.getDoubleFrom(right);
+                            }
+                        }
+                    }
+                    else if (leftList != null) {
+                        if (comparedto.parsed) {
+                            rightList = comparedto.list;
+                        }
+                        else if (dList.matches(right)) {
+                            rightList = dList.valueOf(right);
+                        }
+                    }
+                }
+                boolean asNumbers = leftIsNumber && rightIsNumber;
+                boolean asList = leftList != null && operator != Comparable.Operator.MATCHES;
+                boolean outcome;
+                if (asNumbers) {
+                    outcome = Comparable.compareNumbers(operator, leftNumber, rightNumber);
+                }
+                else if (asList) {
+                    outcome = compareList(leftList, rightList, right);
+                }
+                else {
+                    // Numbers and lists not compared as such are compared as text, as their string forms
+                    if (leftIsNumber) {
+                        left = String.valueOf(leftNumber);
+                    }
+                    else if (leftList != null) {
+                        left = leftList.identify();
+                    }
+                    outcome = Comparable.compareStrings(operator, left, right);
+                }
+                if (negative) {
+                    outcome = !outcome;
+                }
+                if (scriptEntry.dbCallShouldDebug()) {
+                    dB.echoDebug(scriptEntry, (negative ? "Logic='NEGATIVE', " : "")
+                            + "Comparable='" + (asNumbers ? "Decimal(<A>" + leftNumber : asList ? "dList(<A>" + leftList.identify() : "Element(<A>" + left)
+                            + "<W>)', Operator='" + operator.toString()
+                            + "', ComparedTo='" + (asNumbers ? "Decimal(<A>" + rightNumber : asList && rightList != null ? "dList(<A>" + rightList.identify() : "Element(<A>" + right)
+                            + "<W>)' <Y>--> OUTCOME='" + outcome + "'");
+                }
+                return outcome;
+            }
+            catch (IllegalArgumentException ex) {
+                dB.echoError(ex.getMessage());
+                return false;
+            }
+        }
+
+        private boolean compareList(dList list, dList rightList, String right) {
+            switch (operator) {
+                case CONTAINS:
+                    if (rightList != null) {
+                        return false;
+                    }
+                    for (int i = 0; i < list.size(); i++) {
+                        if (list.get(i).equalsIgnoreCase(right)) {
+                            return true;
+                        }
+                    }
+                    return false;
+
+                case EQUALS:
+                    return rightList != null && rightList.identify().equalsIgnoreCase(list.identify());
+            }
+            // Sizes are only compared against numbers, which a list isn't compared with
+            return false;
+        }
+    }
+
+    // One side of a comparison: a group, or an argument (with any leading '!' kept apart) that's either constant or has tags
+    private static class Operand {
+
+        final Group group;
+
+        final boolean negative;
+
+        // Tags to fill in, or null if constant
+        final List<TagManager.ParseableTagPiece> chain;
+
+        // The constant's value, and its text as compared (with any '!' back in front)
+        final String value;
+
+        final String text;
+
+        // Whether the constant's number and list forms are worked out already (a flag list has to be read each time)
+        final boolean parsed;
+
+        final Double number;
+
+        final dList list;
+
+        Operand(Object arg, TagContext context) {
+            if (arg instanceof Group) {
+                group = (Group) arg;
+                negative = false;
+                chain = null;
+                value = null;
+                text = null;
+                parsed = false;
+                number = null;
+                list = null;
+                return;
+            }
+            group = null;
+            String raw = (String) arg;
+            negative = raw.startsWith("!");
+            if (negative) {
+                raw = raw.substring(1);
+            }
+            if (raw.indexOf('>') != -1 && raw.length() >= 3) {
+                chain = TagManager.genChain(raw, context);
+                value = null;
+                text = null;
+                parsed = false;
+                number = null;
+                list = null;
+                return;
+            }
+            chain = null;
+            value = TagManager.tag(raw, context);
+            text = negative ? "!" + value : value;
+            parsed = !DenizenCore.getImplementation().matchesFlagdList(text);
+            number = parsed && aH.matchesDouble(text) ? aH.getDoubleFrom(text) : null;
+            list = parsed && dList.matches(text) ? dList.valueOf(text) : null;
+        }
+
+        String getValue(ScriptEntry scriptEntry, TagContext context) {
+            if (group != null) {
+                return group.evaluate(scriptEntry, context) ? "true" : "false";
+            }
+            if (chain == null) {
+                return value;
+            }
+            return TagManager.cleanOutput(TagManager.parseChainObject(chain, context, false).toString());
+        }
+
+        String getText(ScriptEntry scriptEntry, TagContext context) {
+            if (text != null) {
+                return text;
+            }
+            String got = getValue(scriptEntry, context);
+            return negative ? "!" + got : got;
+        }
+    }
+
     public static class ArgComparer {
 
         List argstemp = null;
@@ -12,6 +12,7 @@ import net.aufdemrand.denizencore.scripts.queues.core.InstantQueue;
 import net.aufdemrand.denizencore.utilities.scheduling.OneTimeSchedulable;
 
 import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 
 public class SyncCommand extends BracedCommand implements Holdable {
@@ -23,7 +24,7 @@ public class SyncCommand extends BracedCommand implements Holdable {
 
     @Override
     public void parseArgs(ScriptEntry scriptEntry) throws InvalidArgumentsException {
-        scriptEntry.addObject("braces", getBracedCommands(scriptEntry));
+        scriptEntry.addObject("braces", getBracedBlocks(scriptEntry));
     }
 
     @Override
@@ -31,8 +32,8 @@ public class SyncCommand extends BracedCommand implements Holdable {
 
         ScriptQueue residingQueue = scriptEntry.getResidingQueue();
 
-        final InstantQueue queue = InstantQueue.getQueue(ScriptQueue.getNextId("SYNC_COMMAND"));
-        queue.addEntries(((List<BracedData>) scriptEntry.getObject("braces")).get(0).value);
+        final InstantQueue queue = InstantQueue.newQueue("SYNC_COMMAND");
+        queue.addEntries(Arrays.asList(copyBlock(scriptEntry, ((List<BracedData>) scriptEntry.getObject("braces")).get(0), 0)));
         queue.getAllDefinitions().putAll(residingQueue.getAllDefinitions());
         if (residingQueue.cachedContext != null) {
             queue.cachedContext = new HashMap<String, dObject>();
@@ -220,11 +220,7 @@ public class ScriptContainer implements Debuggable {
         if (set == null) {
             return null;
         }
-        set = set.duplicate();
-        for (ScriptEntry entry : set.entries) {
-            entry.entryData = data.clone();
-        }
-        return set.entries;
+        return set.duplicate(data).entries;
     }
 
     public List<ScriptEntry> getEntries(ScriptEntryData data, String path) {
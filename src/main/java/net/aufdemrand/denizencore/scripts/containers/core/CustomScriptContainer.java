@@ -5,15 +5,13 @@ import net.aufdemrand.denizencore.interfaces.ContextSource;
 import net.aufdemrand.denizencore.objects.CustomObject;
 import net.aufdemrand.denizencore.objects.Element;
 import net.aufdemrand.denizencore.objects.ObjectFetcher;
+import net.aufdemrand.denizencore.objects.dList;
 import net.aufdemrand.denizencore.objects.dObject;
-import net.aufdemrand.denizencore.scripts.ScriptBuilder;
 import net.aufdemrand.denizencore.scripts.ScriptEntry;
 import net.aufdemrand.denizencore.scripts.ScriptEntryData;
 import net.aufdemrand.denizencore.scripts.ScriptRegistry;
-import net.aufdemrand.denizencore.scripts.commands.core.DetermineCommand;
 import net.aufdemrand.denizencore.scripts.containers.ScriptContainer;
-import net.aufdemrand.denizencore.scripts.queues.ScriptQueue;
-import net.aufdemrand.denizencore.scripts.queues.core.InstantQueue;
+import net.aufdemrand.denizencore.scripts.queues.core.InlineQueue;
 import net.aufdemrand.denizencore.utilities.YamlConfiguration;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
 import net.aufdemrand.denizencore.utilities.text.StringHolder;
@@ -72,49 +70,53 @@ public class CustomScriptContainer extends ScriptContainer {
         return false;
     }
 
-    public long runTagScript(String path, dObject val, CustomObject obj, ScriptEntryData data) {
+    /**
+     * Runs the script for a custom object tag, as inherited.
+     *
+     * @return the script's determinations, or null if there's no script for the tag.
+     */
+    public dList runTagScript(String path, dObject val, CustomObject obj, ScriptEntryData data) {
         CustomScriptContainer csc = this;
         while (csc != null) {
             if (csc.contains("tags." + path)) {
                 dB.echoDebug(this, "[CustomObject] Calculating tag: " + path + " for " + csc.getName());
-                ScriptQueue queue = InstantQueue.getQueue(ScriptQueue.getNextId("TAG_" + csc.getName() + "_" + path + "__"));
+                InlineQueue queue = new InlineQueue("TAG_" + csc.getName() + "_" + path);
                 List<ScriptEntry> listOfEntries = csc.getEntries(data, "tags." + path);
-                long id = DetermineCommand.getNewId();
-                ScriptBuilder.addObjectToEntries(listOfEntries, "reqid", id);
                 CustomScriptContextSource cscs = new CustomScriptContextSource();
                 cscs.obj = obj;
                 cscs.value = val;
                 queue.setContextSource(cscs);
                 queue.addEntries(listOfEntries);
-                queue.start();
-                return id;
+                return queue.run();
             }
             dB.echoDebug(this, "[CustomObject] Grabbing parent of " + csc.getName());
             csc = ScriptRegistry.getScriptContainerAs(csc.inherit, CustomScriptContainer.class);
         }
         dB.echoDebug(this, "Unable to find tag handler for " + path + " for " + this.getName());
-        return -1;
+        return null;
     }
 
-    public long runMechScript(String path, CustomObject obj, dObject value) {
+    /**
+     * Runs the script for a custom object mechanism, as inherited.
+     *
+     * @return the script's determinations, or null if there's no script for the mechanism.
+     */
+    public dList runMechScript(String path, CustomObject obj, dObject value) {
         CustomScriptContainer csc = this;
         while (csc != null) {
             if (csc.contains("mechanisms." + path)) {
-                ScriptQueue queue = InstantQueue.getQueue(ScriptQueue.getNextId("MECH_" + csc.getName() + "_" + path + "__"));
+                InlineQueue queue = new InlineQueue("MECH_" + csc.getName() + "_" + path);
                 List<ScriptEntry> listOfEntries = csc.getEntries(DenizenCore.getImplementation().getEmptyScriptEntryData(), "mechanisms." + path);
-                long id = DetermineCommand.getNewId();
-                ScriptBuilder.addObjectToEntries(listOfEntries, "reqid", id);
                 CustomScriptContextSource cscs = new CustomScriptContextSource();
                 cscs.obj = obj;
                 cscs.value = value;
                 queue.setContextSource(cscs);
                 queue.addEntries(listOfEntries);
-                queue.start();
-                return id;
+                return queue.run();
             }
             csc = ScriptRegistry.getScriptContainerAs(csc.inherit, CustomScriptContainer.class);
         }
-        return -1;
+        return null;
     }
 
     public static class CustomScriptContextSource implements ContextSource {
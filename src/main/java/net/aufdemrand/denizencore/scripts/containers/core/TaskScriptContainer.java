@@ -2,6 +2,7 @@ package net.aufdemrand.denizencore.scripts.containers.core;
 
 import net.aufdemrand.denizencore.DenizenCore;
 import net.aufdemrand.denizencore.objects.Duration;
+import net.aufdemrand.denizencore.objects.Element;
 import net.aufdemrand.denizencore.scripts.ScriptBuilder;
 import net.aufdemrand.denizencore.scripts.ScriptEntry;
 import net.aufdemrand.denizencore.scripts.ScriptEntryData;
@@ -11,6 +12,7 @@ import net.aufdemrand.denizencore.scripts.queues.core.InstantQueue;
 import net.aufdemrand.denizencore.scripts.queues.core.TimedQueue;
 import net.aufdemrand.denizencore.utilities.CoreUtilities;
 import net.aufdemrand.denizencore.utilities.YamlConfiguration;
+import net.aufdemrand.denizencore.utilities.debugging.dB;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -44,6 +46,25 @@ public class TaskScriptContainer extends ScriptContainer {
         return speed;
     }
 
+    ScriptQueue.Priority priority = null;
+
+    public ScriptQueue.Priority getPriority() {
+        if (priority != null) {
+            return priority;
+        }
+        priority = ScriptQueue.Priority.NORMAL;
+        if (contains("priority")) {
+            String tmp = getString("priority", "normal");
+            if (new Element(tmp).matchesEnum(ScriptQueue.Priority.values())) {
+                priority = ScriptQueue.Priority.valueOf(tmp.toUpperCase());
+            }
+            else {
+                dB.echoError("Invalid priority '" + tmp + "' in task script '" + getName() + "'!");
+            }
+        }
+        return priority;
+    }
+
     public TaskScriptContainer setSpeed(Duration speed) {
         //  TODO: Remove with RunTask
         this.speed = speed;
@@ -51,17 +72,25 @@ public class TaskScriptContainer extends ScriptContainer {
     }
 
     public ScriptQueue runTaskScript(ScriptEntryData data, Map<String, String> context) {
-        return runTaskScript(ScriptQueue.getNextId(getName()), data, context);
+        return runTaskScript(null, data, context);
     }
 
-    public ScriptQueue runTaskScript(String queueId, ScriptEntryData data, Map<String, String> context) {
+    // Gets the queue to run in, or a new one with a generated id if none is named
+    private ScriptQueue getQueue(String queueId) {
         ScriptQueue queue;
         if (getSpeed().getSeconds() == 0) {
-            queue = InstantQueue.getQueue(queueId);
+            queue = queueId == null ? InstantQueue.newQueue(getName()) : InstantQueue.getQueue(queueId);
         }
         else {
-            queue = TimedQueue.getQueue(queueId).setSpeed(getSpeed().getTicks());
+            queue = (queueId == null ? TimedQueue.newQueue(getName()) : TimedQueue.getQueue(queueId))
+                    .setSpeed(getSpeed().getTicks());
         }
+        queue.setPriority(getPriority());
+        return queue;
+    }
+
+    public ScriptQueue runTaskScript(String queueId, ScriptEntryData data, Map<String, String> context) {
+        ScriptQueue queue = getQueue(queueId);
 
         List<ScriptEntry> listOfEntries = getBaseEntries(data);
         if (context != null) {
@@ -86,13 +115,7 @@ public class TaskScriptContainer extends ScriptContainer {
     }
 
     public ScriptQueue runTaskScriptWithDelay(String queueId, ScriptEntryData data, Map<String, String> context, Duration delay) {
-        ScriptQueue queue;
-        if (getSpeed().getSeconds() == 0) {
-            queue = InstantQueue.getQueue(queueId);
-        }
-        else {
-            queue = TimedQueue.getQueue(queueId).setSpeed(getSpeed().getTicks());
-        }
+        ScriptQueue queue = getQueue(queueId);
 
         List<ScriptEntry> listOfEntries = getBaseEntries(data);
         if (context != null) {
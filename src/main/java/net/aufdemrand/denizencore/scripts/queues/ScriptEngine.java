@@ -1,5 +1,6 @@
 package net.aufdemrand.denizencore.scripts.queues;
 
+import net.aufdemrand.denizencore.DenizenCore;
 import net.aufdemrand.denizencore.scripts.ScriptEntry;
 import net.aufdemrand.denizencore.scripts.commands.CommandExecuter;
 import net.aufdemrand.denizencore.scripts.queues.core.Delayable;
@@ -7,6 +8,23 @@ import net.aufdemrand.denizencore.utilities.debugging.dB;
 
 public class ScriptEngine {
 
+    /**
+     * Most time, in nanoseconds, a queue may spend running in a single tick before it's sliced:
+     * suspended after its current entry, and continued next tick. 0 for no limit.
+     * Only applies to queues that can be sliced (see {@link ScriptQueue#canSlice()}).
+     */
+    public static long sliceNanos = 0;
+
+    /**
+     * Most entries a queue may run in a single tick before it's sliced. 0 for no limit.
+     */
+    public static int sliceEntryLimit = 0;
+
+    /**
+     * How many times a queue has been sliced so far.
+     */
+    public static long slicedCount = 0;
+
 
     final private CommandExecuter commandExecuter;
 
@@ -21,20 +39,45 @@ public class ScriptEngine {
         if (scriptQueue instanceof Delayable && ((Delayable) scriptQueue).isPaused()) {
             return true;
         }
-        if (scriptQueue.getLastEntryExecuted() != null
-                && scriptQueue.getLastEntryExecuted().shouldWaitFor()) {
-            if (!(scriptQueue instanceof Delayable)) {
-                dB.echoDebug(scriptQueue.getLastEntryExecuted(), "Forcing queue " + scriptQueue.id + " into a timed queue...");
-                scriptQueue.forceToTimed(null);
-                return true;
-            }
-            else {
-                return true;
-            }
+        if (scriptQueue.isHeld()) {
+            return true;
+        }
+        ScriptEntry last = scriptQueue.getLastEntryExecuted();
+        if (last != null && last.shouldWaitFor()) {
+            // Park the queue until the entry finishes, rather than checking back on it
+            return scriptQueue.holdFor(last);
         }
         return false;
     }
 
+    // Checks whether the queue has run over its budget for this tick, having just run an entry
+    private boolean shouldSlice(ScriptQueue scriptQueue) {
+        if ((sliceNanos <= 0 && sliceEntryLimit <= 0) || !scriptQueue.canSlice()) {
+            return false;
+        }
+        long now = System.nanoTime();
+        if (scriptQueue.sliceTick != DenizenCore.tickCount) {
+            // First entry this tick: the slice began just before it
+            scriptQueue.sliceTick = DenizenCore.tickCount;
+            scriptQueue.sliceStart = now;
+            scriptQueue.sliceEntries = 0;
+        }
+        scriptQueue.sliceEntries++;
+        if (scriptQueue.script_entries.isEmpty()) {
+            return false;
+        }
+        return (sliceEntryLimit > 0 && scriptQueue.sliceEntries >= sliceEntryLimit)
+                || (sliceNanos > 0 && now - scriptQueue.sliceStart >= sliceNanos);
+    }
+
+    private void slice(ScriptQueue scriptQueue, ScriptEntry scriptEntry) {
+        slicedCount++;
+        if (scriptEntry.dbCallShouldDebug()) {
+            dB.echoDebug(scriptEntry, "Queue '" + scriptQueue.getId() + "' ran over its time this tick, continuing next tick...");
+        }
+        scriptQueue.slice();
+    }
+
     public void revolveOnceForce(ScriptQueue scriptQueue) {
         ScriptEntry scriptEntry = scriptQueue.getNext();
         if (scriptEntry == null) {
@@ -89,21 +132,30 @@ public class ScriptEngine {
                     if (shouldHold(scriptQueue)) {
                         return;
                     }
+                    if (shouldSlice(scriptQueue)) {
+                        slice(scriptQueue, scriptEntry);
+                        return;
+                    }
                     scriptEntry = scriptQueue.getNext();
                 }
                 else {
                     break;
                 }
             }
-            else if (scriptEntry.isInstant()) {
+            else {
                 if (shouldHold(scriptQueue)) {
                     return;
                 }
+                // The queue goes straight on to its next entry either way, so may be sliced either way
+                if (shouldSlice(scriptQueue)) {
+                    slice(scriptQueue, scriptEntry);
+                    return;
+                }
+                if (!scriptEntry.isInstant()) {
+                    break;
+                }
                 scriptEntry = scriptQueue.getNext();
             }
-            else {
-                break;
-            }
         }
     }
 
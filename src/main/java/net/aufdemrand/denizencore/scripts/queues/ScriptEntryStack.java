@@ -0,0 +1,333 @@
+package net.aufdemrand.denizencore.scripts.queues;
+
+import net.aufdemrand.denizencore.scripts.JumpTable;
+import net.aufdemrand.denizencore.scripts.ScriptEntry;
+import net.aufdemrand.denizencore.utilities.CoreUtilities;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The entries a queue has yet to run, kept as a stack of frames over entry arrays
+ * rather than as one flat list. Each frame is a range of an array with its own program counter:
+ * running an entry moves the top frame's counter along, and injecting entries at the front
+ * (EG, the body of an 'if' or one pass of a 'foreach') pushes a new frame, so neither copies
+ * the rest of the queue. Frame arrays are never written to, so may be shared.
+ * <p/>
+ * A frame may also be marked as a pass of a loop (see {@link #pushLoop(ScriptEntry[], Object)}),
+ * so that the loop can be skipped to the end of its pass, or left, without searching the queue.
+ * Likewise, marks are found by the {@link JumpTable} of the entries in each frame.
+ * <p/>
+ * Also works as a regular list of the remaining entries, front first, for code that
+ * reads or edits the queue directly.
+ */
+public class ScriptEntryStack extends AbstractList<ScriptEntry> {
+
+    public static class Frame {
+
+        public final ScriptEntry[] entries;
+
+        // Index of the next entry to run
+        public int pc;
+
+        // Index after the last entry to run
+        public int end;
+
+        // The loop this frame is a pass of, if any
+        public Object loop = null;
+
+        public Frame(ScriptEntry[] entries, int pc, int end) {
+            this.entries = entries;
+            this.pc = pc;
+            this.end = end;
+        }
+
+        public int remaining() {
+            return end - pc;
+        }
+    }
+
+    // The top frame (runs first) is at the end of the array
+    private Frame[] frames = new Frame[8];
+
+    private int depth = 0;
+
+    private int size = 0;
+
+    /**
+     * Pushes a frame running the given entries before everything else in the stack.
+     * The array is used as-is, and must not be changed afterward.
+     */
+    public void push(ScriptEntry[] entries) {
+        if (entries.length > 0) {
+            insertFrame(depth, new Frame(entries, 0, entries.length));
+        }
+    }
+
+    /**
+     * Pushes a frame running one pass of a loop before everything else in the stack.
+     * The last entry must be the one that ends the pass (EG, by pushing the next one),
+     * as {@link #skipLoop(boolean)} skips to it. The array is used as-is, and must not be changed afterward.
+     *
+     * @param entries the entries of the pass.
+     * @param loop    whatever identifies the loop.
+     */
+    public void pushLoop(ScriptEntry[] entries, Object loop) {
+        if (entries.length > 0) {
+            Frame frame = new Frame(entries, 0, entries.length);
+            frame.loop = loop;
+            insertFrame(depth, frame);
+        }
+    }
+
+    /**
+     * Skips the rest of the innermost loop pass in the stack, dropping everything run before it.
+     *
+     * @param exit whether to leave the loop entirely, rather than skip to the entry that ends the pass.
+     * @return the loop skipped, or null if not in one.
+     */
+    public Object skipLoop(boolean exit) {
+        int f = depth - 1;
+        while (f >= 0 && frames[f].loop == null) {
+            f--;
+        }
+        if (f < 0) {
+            return null;
+        }
+        Frame frame = frames[f];
+        while (depth > f + 1) {
+            size -= frames[depth - 1].remaining();
+            frames[--depth] = null;
+        }
+        if (exit) {
+            size -= frame.remaining();
+            frames[--depth] = null;
+        }
+        else {
+            size -= frame.remaining() - 1;
+            frame.pc = frame.end - 1;
+        }
+        modCount++;
+        return frame.loop;
+    }
+
+    /**
+     * Skips ahead to the first mark with the given name, dropping everything run before it.
+     *
+     * @param name the mark name.
+     * @return whether the mark was found (if not, nothing is dropped).
+     */
+    public boolean jumpTo(String name) {
+        String lowerName = CoreUtilities.toLowerCase(name);
+        for (int f = depth - 1; f >= 0; f--) {
+            Frame frame = frames[f];
+            JumpTable table = frame.entries[frame.pc].internal.jumpTable;
+            int index = table != null ? table.find(frame.entries, frame.pc, frame.end, name, lowerName)
+                    : JumpTable.search(frame.entries, frame.pc, frame.end, name);
+            if (index != -1) {
+                while (depth > f + 1) {
+                    size -= frames[depth - 1].remaining();
+                    frames[--depth] = null;
+                }
+                size -= index - frame.pc;
+                frame.pc = index;
+                modCount++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves every frame of this stack, as they are (loop passes included), to run after
+     * everything already in another stack, leaving this one empty.
+     *
+     * @param target the stack to move the frames to.
+     */
+    public void transferTo(ScriptEntryStack target) {
+        // Topmost first, each going under the one before
+        for (int f = depth - 1; f >= 0; f--) {
+            target.insertFrame(0, frames[f]);
+        }
+        clear();
+    }
+
+    /**
+     * Returns the number of frames currently on the stack.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the next entry to run without removing it, or null if there are none.
+     */
+    public ScriptEntry peek() {
+        if (depth == 0) {
+            return null;
+        }
+        Frame top = frames[depth - 1];
+        return top.entries[top.pc];
+    }
+
+    /**
+     * Removes and returns the next entry to run, or null if there are none.
+     */
+    public ScriptEntry next() {
+        if (depth == 0) {
+            return null;
+        }
+        Frame top = frames[depth - 1];
+        ScriptEntry entry = top.entries[top.pc++];
+        if (top.pc == top.end) {
+            frames[--depth] = null;
+        }
+        size--;
+        modCount++;
+        return entry;
+    }
+
+    private void insertFrame(int index, Frame frame) {
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
+        }
+        System.arraycopy(frames, index, frames, index + 1, depth - index);
+        frames[index] = frame;
+        depth++;
+        size += frame.remaining();
+        modCount++;
+    }
+
+    private void removeFrame(int index) {
+        System.arraycopy(frames, index + 1, frames, index, depth - index - 1);
+        frames[--depth] = null;
+    }
+
+    // Finds the frame holding the given list index, with index - offsetOf(frame) stored in found[0]
+    private int locate(int index, int[] found) {
+        int offset = index;
+        for (int f = depth - 1; f >= 0; f--) {
+            int remaining = frames[f].remaining();
+            if (offset < remaining) {
+                found[0] = offset;
+                return f;
+            }
+            offset -= remaining;
+        }
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    private void insert(int index, ScriptEntry[] entries) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Frame frame = new Frame(entries, 0, entries.length);
+        if (index == size) {
+            insertFrame(0, frame);
+            return;
+        }
+        int[] offset = new int[1];
+        int f = locate(index, offset);
+        if (offset[0] == 0) {
+            insertFrame(f + 1, frame);
+            return;
+        }
+        // Split the frame around the new entries: the original keeps the back half
+        Frame existing = frames[f];
+        Frame front = new Frame(existing.entries, existing.pc, existing.pc + offset[0]);
+        existing.pc += offset[0];
+        size -= front.remaining();
+        insertFrame(f + 1, frame);
+        insertFrame(f + 2, front);
+    }
+
+    @Override
+    public ScriptEntry get(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int[] offset = new int[1];
+        Frame frame = frames[locate(index, offset)];
+        return frame.entries[frame.pc + offset[0]];
+    }
+
+    @Override
+    public ScriptEntry set(int index, ScriptEntry entry) {
+        ScriptEntry old = remove(index);
+        insert(index, new ScriptEntry[] {entry});
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void add(int index, ScriptEntry entry) {
+        insert(index, new ScriptEntry[] {entry});
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends ScriptEntry> entries) {
+        return addAll(size, entries);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends ScriptEntry> entries) {
+        if (entries.isEmpty()) {
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return false;
+        }
+        insert(index, entries.toArray(new ScriptEntry[entries.size()]));
+        return true;
+    }
+
+    @Override
+    public ScriptEntry remove(int index) {
+        if (index == 0) {
+            ScriptEntry entry = next();
+            if (entry == null) {
+                throw new IndexOutOfBoundsException("Index: 0, Size: 0");
+            }
+            return entry;
+        }
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int[] offset = new int[1];
+        int f = locate(index, offset);
+        Frame frame = frames[f];
+        ScriptEntry entry = frame.entries[frame.pc + offset[0]];
+        if (offset[0] == 0) {
+            frame.pc++;
+        }
+        else if (offset[0] == frame.remaining() - 1) {
+            frame.end--;
+        }
+        else {
+            // Split the frame around the removed entry: the original keeps the back half
+            Frame front = new Frame(frame.entries, frame.pc, frame.pc + offset[0]);
+            frame.pc += offset[0] + 1;
+            size -= front.remaining();
+            insertFrame(f + 1, front);
+        }
+        if (frame.remaining() == 0) {
+            removeFrame(f);
+        }
+        size--;
+        modCount++;
+        return entry;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(frames, 0, depth, null);
+        depth = 0;
+        size = 0;
+        modCount++;
+    }
+}
@@ -23,17 +23,20 @@ import net.aufdemrand.denizencore.utilities.scheduling.Schedulable;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ScriptQueues hold/control ScriptEntries while being sent
  * to the CommandExecuter
  */
 
-public abstract class ScriptQueue implements Debuggable, dObject, dObject.ObjectAttributable, DefinitionProvider {
+public abstract class ScriptQueue implements Debuggable, dObject, dObject.ObjectAttributable, DefinitionProvider, Adjustable {
     private static final Map<Class<? extends ScriptQueue>, String> classNameCache = new HashMap<Class<? extends ScriptQueue>, String>();
 
     protected static long total_queues = 0;
 
+    private static final AtomicLong nextSerial = new AtomicLong();
+
 
     /**
      * Returns the number of queues created in the current instance
@@ -53,7 +56,7 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
         return "Total number of queues created: "
                 + total_queues
                 + ", currently active queues: "
-                + _queues.size() + ",\n" + stats.toString();
+                + _queuesBySerial.size() + ",\n" + stats.toString();
     }
 
 
@@ -80,27 +83,33 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
 
     /**
      * Gets a random id for use in creating a 'nameless' queue.
+     * <p/>
+     * Queues that don't need a name up front should use a generated id instead
+     * (see {@link #generateId(String)}), which is only formatted if asked for.
      *
      * @param prefix the name of the script running the new queue.
      * @return String value of a random id
      */
     public static String getNextId(String prefix) {
-        // DUUIDs v2.1
+        return formatId(prefix, nextSerial.incrementAndGet());
+    }
+
+    // DUUIDs v2.2: words picked by a scramble of the serial, rather than by a shared random
+    private static String formatId(String prefix, long serial) {
+        long bits = serial * 0x9E3779B97F4A7C15L;
+        bits = (bits ^ (bits >>> 30)) * 0xBF58476D1CE4E5B9L;
+        bits = (bits ^ (bits >>> 27)) * 0x94D049BB133111EBL;
+        bits ^= bits >>> 31;
         int size = QueueWordList.FinalWordList.size();
-        String id = prefix + "_"
-                + QueueWordList.FinalWordList.get(CoreUtilities.getRandom().nextInt(size))
-                + QueueWordList.FinalWordList.get(CoreUtilities.getRandom().nextInt(size))
-                + QueueWordList.FinalWordList.get(CoreUtilities.getRandom().nextInt(size));
-        // DUUIDs v3.1
-        /*
-        String id = prefix.replace(' ', '_')
-                + "_"
-                + randomEntry(QueueWordList.Pronouns)
-                + randomEntry(QueueWordList.Verbs)
-                + randomEntry(QueueWordList.Modifiers)
-                + randomEntry(QueueWordList.Adjectives)
-                + randomEntry(QueueWordList.Nouns);*/
-        return _queues.containsKey(id) ? getNextId(prefix) : id;
+        StringBuilder id = new StringBuilder(prefix).append('_');
+        for (int i = 0; i < 3; i++) {
+            id.append(QueueWordList.FinalWordList.get((int) ((bits >>> (i * 21)) & 0x1FFFFF) % size));
+        }
+        // The words alone may repeat, the serial never does
+        if (_queues.containsKey(id.toString())) {
+            id.append(serial);
+        }
+        return id.toString();
     }
 
 
@@ -117,10 +126,15 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
     }
 
 
-    // Contains all currently active queues, keyed by a String id.
+    // Contains the currently active queues that can be found by id: those given one, and those
+    // whose generated id has been asked for (any other can't have been referred to by id).
     protected static Map<String, ScriptQueue> _queues =
             new ConcurrentHashMap<String, ScriptQueue>(8, 0.9f, 1);
 
+    // Contains all currently active queues, keyed by serial.
+    protected static Map<Long, ScriptQueue> _queuesBySerial =
+            new ConcurrentHashMap<Long, ScriptQueue>(8, 0.9f, 1);
+
 
     /**
      * Returns a collection of all active queues.
@@ -128,7 +142,7 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
      * @return a collection of ScriptQueues
      */
     public static Collection<ScriptQueue> _getQueues() {
-        return _queues.values();
+        return _queuesBySerial.values();
     }
 
 
@@ -147,9 +161,24 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
     /////////////////////
 
 
+    // Number unique to the queue, for as long as the server runs
+    public final long serial;
+
     // Name of the queue -- this identifies
     // the ScriptQueue when using _getQueue()
-    public String id;
+    // Null until asked for, if generated (see getId())
+    private volatile String queueId;
+
+    /**
+     * The id of the queue, kept up to date for older code that reads it directly.
+     *
+     * @deprecated is null if the id was generated and hasn't been formatted yet: use {@link #getId()}.
+     */
+    @Deprecated
+    public volatile String id;
+
+    // Prefix of the generated id, if not given one
+    private String idPrefix = null;
 
     // Whether the queue was cleared
     public boolean was_cleared = false;
@@ -157,14 +186,31 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
     // Whether the queue should run asynchronously
     public boolean run_async = false;
 
+    // Whether the queue may be sliced (see ScriptEngine.sliceNanos), if it's otherwise able
+    public boolean allowSlicing = true;
+
+    /**
+     * How urgently a queue should run, compared to others, when there's more to do in a tick than time to do it.
+     */
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    // Which queues run first in a busy tick, and which can wait (see TimedQueueRunner)
+    public Priority priority = Priority.NORMAL;
+
 
     /////////////////////
     // Private instance fields and constructors
     /////////////////////
 
 
-    // List of ScriptEntries in the queue
-    public final List<ScriptEntry> script_entries = new ArrayList<ScriptEntry>();
+    // ScriptEntries yet to run in the queue, as a stack of entry frames
+    protected final ScriptEntryStack entryStack = new ScriptEntryStack();
+
+
+    // List view of the ScriptEntries in the queue
+    public final List<ScriptEntry> script_entries = entryStack;
 
 
     // The last script entry that was executed
@@ -195,7 +241,9 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
      */
     protected ScriptQueue(String id) {
         // Remember the 'id'
+        this.queueId = id;
         this.id = id;
+        serial = nextSerial.incrementAndGet();
         // Increment the stats
         total_queues++;
     }
@@ -209,6 +257,54 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
     // Public instance setters and getters
     /////////////////////
 
+    /**
+     * Gives the queue a generated id, in place of one given on creation, to be used by queues
+     * that don't need a particular name. It isn't formatted until something asks for it.
+     *
+     * @param prefix the name of the script running the queue.
+     */
+    protected void generateId(String prefix) {
+        queueId = null;
+        id = null;
+        idPrefix = prefix;
+    }
+
+    /**
+     * Gets the id of the queue to hand out to scripts (EG, through a tag), which may then use it to find the queue.
+     * Unlike {@link #getId()}, which debug output also uses, makes sure the queue can be found by it.
+     *
+     * @return the queue id.
+     */
+    public String exposeId() {
+        return getId();
+    }
+
+    /**
+     * Gets the id of the queue, formatting it first if it was generated and this is the first time it's asked for.
+     *
+     * @return the queue id.
+     */
+    public String getId() {
+        String result = queueId;
+        if (result != null) {
+            return result;
+        }
+        synchronized (this) {
+            if (queueId == null) {
+                queueId = formatId(idPrefix, serial);
+                id = queueId;
+                // Now it's been seen, it can be referred to, so must be able to be found
+                if (_queuesBySerial.get(serial) == this) {
+                    _queues.put(queueId, this);
+                    if (_queuesBySerial.get(serial) != this) {
+                        _queues.remove(queueId, this);
+                    }
+                }
+            }
+            return queueId;
+        }
+    }
+
     /**
      * Gets a boolean indicating whether the queue
      * was cleared.
@@ -281,6 +377,23 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
     }
 
 
+    // Determinations made in the queue, for whatever started it, or null if it doesn't take any
+    private dList determinations = null;
+
+    /**
+     * Lets the queue take determinations (via the determine command),
+     * to be read back with {@link #getDeterminations()} by whatever started it.
+     *
+     * @return the queue for re-use.
+     */
+    public ScriptQueue setDeterminable() {
+        if (determinations == null) {
+            determinations = new dList();
+        }
+        return this;
+    }
+
+    // The ID the queue's determinations are kept under by DetermineCommand, or -1
     private long reqId = -1L;
 
     /**
@@ -288,12 +401,40 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
      *
      * @param ID the ID to use.
      * @return the queue for re-use.
+     * @deprecated use {@link #setDeterminable()}, and read {@link #getDeterminations()}.
      */
+    @Deprecated
     public ScriptQueue setReqId(long ID) {
+        setDeterminable();
         reqId = ID;
+        DetermineCommand.trackOutcome(ID, determinations);
         return this;
     }
 
+    public boolean isDeterminable() {
+        return determinations != null;
+    }
+
+    /**
+     * Returns everything determined in the queue so far, in order, or null if the queue doesn't take determinations.
+     */
+    public dList getDeterminations() {
+        return determinations;
+    }
+
+    /**
+     * Adds a determination to the queue's results, if it takes any.
+     *
+     * @return whether the queue takes determinations.
+     */
+    public boolean determine(dObject determination) {
+        if (determinations == null) {
+            return false;
+        }
+        determinations.addObject(determination);
+        return true;
+    }
+
     @Override
     public dObject getDefinitionObject(String definition) {
         if (definition == null) {
@@ -383,6 +524,97 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
     }
 
 
+    // Whether the queue is parked, waiting on a held command to finish
+    private volatile boolean held = false;
+
+
+    public boolean isHeld() {
+        return held;
+    }
+
+
+    /**
+     * Parks the queue until the given entry finishes.
+     *
+     * @param entry the entry to wait for.
+     * @return whether the queue was parked (false if the entry had already finished).
+     */
+    public boolean holdFor(ScriptEntry entry) {
+        // Mark as held first, so that a wake from another thread can't be missed
+        held = true;
+        if (!entry.holdQueue(this)) {
+            held = false;
+            return false;
+        }
+        dB.echoDebug(entry, "Queue '" + getId() + "' waiting for '" + entry.getCommandName() + "' to finish...");
+        return true;
+    }
+
+
+    // Tick the queue's current slice began on, and the time and entry count of the slice so far
+    long sliceTick = -1;
+
+    long sliceStart = 0;
+
+    int sliceEntries = 0;
+
+
+    public ScriptQueue setPriority(Priority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+
+    /**
+     * Returns whether the queue may be sliced, being suspended part way to continue next tick.
+     * Async queues aren't, as they don't hold up the main thread, and neither are high priority queues
+     * or queues whose determination is wanted (see {@link #setDeterminable()}), as that's read as soon as they're started.
+     */
+    public boolean canSlice() {
+        return allowSlicing && !run_async && determinations == null && priority != Priority.HIGH;
+    }
+
+
+    /**
+     * Suspends the queue for the rest of this tick, to continue on the next.
+     */
+    public void slice() {
+        held = true;
+        wake();
+    }
+
+
+    /**
+     * Wakes a parked queue, to continue on its own thread (the main thread, for non-async queues) as soon as possible.
+     * May be called from any thread.
+     */
+    public void wake() {
+        Schedulable schedulable = new OneTimeSchedulable(new Runnable() {
+            @Override
+            public void run() {
+                if (held) {
+                    held = false;
+                    onWake();
+                }
+            }
+        }, 0);
+        if (run_async) {
+            schedulable = new AsyncSchedulable(schedulable);
+        }
+        DenizenCore.schedule(schedulable);
+    }
+
+
+    /**
+     * Called when the queue is woken after being parked. Continues running it, by default.
+     */
+    protected void onWake() {
+        if (is_started) {
+            onStart();
+        }
+    }
+
+
     /**
      * Will delay the start of the queue until Java's
      * System.currentTimeMillis() is less than the
@@ -409,13 +641,20 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
     public TimedQueue forceToTimed(Duration delay) {
         Runnable r = callback;
         callback = null;
+        // The new queue carries on the determinations, so keep them tracked until it's done
+        long req = reqId;
+        reqId = -1L;
         stop();
-        TimedQueue newQueue = new TimedQueue(id, 0);
+        TimedQueue newQueue = new TimedQueue(queueId, 0);
+        if (queueId == null) {
+            newQueue.generateId(idPrefix);
+        }
         newQueue.run_async = this.run_async;
         for (ScriptEntry entry : getEntries()) {
             entry.setInstant(true);
         }
-        newQueue.addEntries(getEntries());
+        // Keep the frames intact, so any loop being run can still be skipped or left
+        entryStack.transferTo(newQueue.entryStack);
         for (Map.Entry<String, dObject> def : getAllDefinitions().entrySet()) {
             newQueue.addDefinition(def.getKey(), def.getValue());
         }
@@ -430,6 +669,8 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
             newQueue.delayFor(delay);
         }
         newQueue.script = script;
+        ((ScriptQueue) newQueue).determinations = determinations;
+        ((ScriptQueue) newQueue).reqId = req;
         newQueue.callBack(r);
         newQueue.start();
         return newQueue;
@@ -465,6 +706,31 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
         onStart(); /* Start the engine */
     }
 
+    /**
+     * Lists the queue among the active queues, where it can be found by ID.
+     */
+    protected void register() {
+        _queuesBySerial.put(serial, this);
+        String name = queueId;
+        if (name != null) {
+            _queues.put(name, this);
+        }
+    }
+
+    /**
+     * Removes the queue from the active queues.
+     */
+    protected void unregister() {
+        _queuesBySerial.remove(serial);
+        String name = queueId;
+        if (name != null) {
+            _queues.remove(name, this);
+        }
+        if (reqId >= 0) {
+            DetermineCommand.untrackIfEmpty(reqId);
+        }
+    }
+
     /**
      * Starts the script queue.
      */
@@ -474,7 +740,7 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
         }
 
         // Save the instance to the _queues static map
-        _queues.put(id, this);
+        register();
 
         // Set as started, and check for a valid delay_time.
         is_started = true;
@@ -487,13 +753,15 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
         }
 
         // Debug info
-        String name = getName();
-        if (is_delayed) {
-            dB.echoDebug(this, "Delaying " + name + " '" + id + "'" + " for '"
-                    + new Duration(((double) delay) / 1000f).identify() + "'...");
-        }
-        else {
-            dB.echoDebug(this, "Starting " + name + " '" + id + "'...");
+        if (DenizenCore.getImplementation().shouldDebug(this)) {
+            String name = getName();
+            if (is_delayed) {
+                dB.echoDebug(this, "Delaying " + name + " '" + getId() + "'" + " for '"
+                        + new Duration(((double) delay) / 1000f).identify() + "'...");
+            }
+            else {
+                dB.echoDebug(this, "Starting " + name + " '" + getId() + "'...");
+            }
         }
 
         // If it's delayed, schedule it for later
@@ -605,13 +873,15 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
             // Add the 'finishing' entries back into the queue (if not empty)
             if (entries != null && !entries.isEmpty()) {
                 script_entries.addAll(entries);
-                dB.echoDebug(this, "Finishing up queue '" + id + "'...");
+                if (DenizenCore.getImplementation().shouldDebug(this)) {
+                    dB.echoDebug(this, "Finishing up queue '" + getId() + "'...");
+                }
             }
             else /* if empty, just stop the queue like normal */ {
-                if (_queues.get(id) == this) {
-                    _queues.remove(id);
+                unregister();
+                if (DenizenCore.getImplementation().shouldDebug(this)) {
+                    dB.echoDebug(this, "Completing queue '" + getId() + "' in " + ((System.nanoTime() - startTime) / 1000000) + "ms.");
                 }
-                dB.echoDebug(this, "Completing queue '" + id + "' in " + ((System.nanoTime() - startTime) / 1000000) + "ms.");
                 if (callback != null) {
                     callback.run();
                 }
@@ -624,9 +894,11 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
         // 1) Remove the id from active queue list
         // 2) Cancel the corresponding task_id
         else {
-            if (_queues.get(id) == this) {
-                _queues.remove(id);
-                dB.echoDebug(this, "Re-completing queue '" + id + "' in " + ((System.nanoTime() - startTime) / 1000000) + "ms.");
+            if (is_started) {
+                unregister();
+                if (DenizenCore.getImplementation().shouldDebug(this)) {
+                    dB.echoDebug(this, "Re-completing queue '" + getId() + "' in " + ((System.nanoTime() - startTime) / 1000000) + "ms.");
+                }
                 if (callback != null) {
                     callback.run();
                 }
@@ -676,12 +948,7 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
 
 
     public ScriptEntry getNext() {
-        if (!script_entries.isEmpty()) {
-            return script_entries.remove(0);
-        }
-        else {
-            return null;
-        }
+        return entryStack.next();
     }
 
 
@@ -696,6 +963,56 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
     }
 
 
+    /**
+     * Runs the given entries before everything else in the queue, without copying them.
+     * The array must not be changed afterward.
+     *
+     * @param entries the entries to run next.
+     */
+    public ScriptQueue pushEntries(ScriptEntry[] entries) {
+        entryStack.push(entries);
+        hasInjectedItems = true;
+        return this;
+    }
+
+
+    /**
+     * Runs one pass of a loop before everything else in the queue, without copying the entries.
+     * The last entry must be the one that ends the pass. The array must not be changed afterward.
+     *
+     * @param entries the entries of the pass.
+     * @param loop    whatever identifies the loop.
+     * @return the queue.
+     */
+    public ScriptQueue pushLoop(ScriptEntry[] entries, Object loop) {
+        entryStack.pushLoop(entries, loop);
+        hasInjectedItems = true;
+        return this;
+    }
+
+
+    /**
+     * Skips the rest of the innermost loop pass being run, along with anything run from within it.
+     *
+     * @param exit whether to leave the loop entirely, rather than skip to the entry that ends the pass.
+     * @return the loop skipped, or null if not in one.
+     */
+    public Object skipLoop(boolean exit) {
+        return entryStack.skipLoop(exit);
+    }
+
+
+    /**
+     * Skips ahead to the first mark with the given name still to run, dropping everything before it.
+     *
+     * @param name the mark name.
+     * @return whether the mark was found (if not, nothing is dropped).
+     */
+    public boolean jumpTo(String name) {
+        return entryStack.jumpTo(name);
+    }
+
+
     public boolean hasInjectedItems = false;
 
 
@@ -752,8 +1069,11 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
 
     @Override
     public boolean shouldDebug() throws Exception {
-        return (lastEntryExecuted != null ? lastEntryExecuted.shouldDebug()
-                : script_entries.get(0).shouldDebug());
+        if (lastEntryExecuted != null) {
+            return lastEntryExecuted.shouldDebug();
+        }
+        // Nothing run yet, or nothing left to run: nothing says not to
+        return script_entries.isEmpty() || script_entries.get(0).shouldDebug();
     }
 
     @Override
@@ -837,7 +1157,7 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
 
     @Override
     public String identify() {
-        return "q@" + id;
+        return "q@" + getId();
     }
 
     @Override
@@ -861,7 +1181,7 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
         registerTag("id", new TagRunnable() {
             @Override
             public String run(Attribute attribute, dObject object) {
-                return new Element(((ScriptQueue) object).id).getAttribute(attribute.fulfill(1));
+                return new Element(((ScriptQueue) object).exposeId()).getAttribute(attribute.fulfill(1));
             }
         });
 
@@ -917,6 +1237,20 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
             }
         });
 
+        // <--[tag]
+        // @attribute <q@queue.priority>
+        // @returns Element
+        // @mechanism ScriptQueue.priority
+        // @description
+        // Returns the queue's priority: 'high', 'normal', or 'low'.
+        // -->
+        registerTag("priority", new TagRunnable() {
+            @Override
+            public String run(Attribute attribute, dObject object) {
+                return new Element(CoreUtilities.toLowerCase(((ScriptQueue) object).priority.name())).getAttribute(attribute.fulfill(1));
+            }
+        });
+
         // <--[tag]
         // @attribute <q@queue.script>
         // @returns dScript
@@ -997,13 +1331,11 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
         registerTag("determination", new TagRunnable() {
             @Override
             public String run(Attribute attribute, dObject object) {
-                Long rID = ((ScriptQueue) object).reqId;
-                if (rID < 0 || !DetermineCommand.hasOutcome(rID)) {
+                dList determinations = ((ScriptQueue) object).determinations;
+                if (determinations == null || determinations.isEmpty()) {
                     return null;
                 }
-                else {
-                    return ObjectFetcher.pickObjectFor(DetermineCommand.readOutcome(rID)).getAttribute(attribute.fulfill(1));
-                }
+                return determinations.getObject(0).getAttribute(attribute.fulfill(1));
             }
         });
 
@@ -1016,13 +1348,7 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
         registerTag("determinable", new TagRunnable() {
             @Override
             public String run(Attribute attribute, dObject object) {
-                ScriptEntry entry = ((ScriptQueue) object).getEntries().get(0);
-                if (entry != null) {
-                    return new Element(entry.getObject("reqid") != null).getAttribute(attribute.fulfill(1));
-                }
-                else {
-                    return new Element(false).getAttribute(attribute.fulfill(1));
-                }
+                return new Element(((ScriptQueue) object).isDeterminable()).getAttribute(attribute.fulfill(1));
             }
         });
 
@@ -1096,4 +1422,33 @@ public abstract class ScriptQueue implements Debuggable, dObject, dObject.Object
 
         return new Element(identify()).getObjectAttribute(attribute);
     }
+
+    @Override
+    public void applyProperty(Mechanism mechanism) {
+        dB.echoError("Cannot apply properties to a queue!");
+    }
+
+    @Override
+    public void adjust(Mechanism mechanism) {
+
+        // <--[mechanism]
+        // @object ScriptQueue
+        // @name priority
+        // @input Element
+        // @description
+        // Sets the queue's priority: 'high', 'normal', or 'low'.
+        // When a tick is too busy to run every timed queue, high priority queues run first and are never deferred,
+        // while low priority queues are the first to wait until a later tick.
+        // High priority queues are also never sliced.
+        // @tags
+        // <q@queue.priority>
+        // -->
+        if (mechanism.matches("priority") && mechanism.requireEnum(false, Priority.values())) {
+            priority = Priority.valueOf(mechanism.getValue().asString().toUpperCase());
+        }
+
+        if (!mechanism.fulfilled()) {
+            mechanism.reportInvalid();
+        }
+    }
 }
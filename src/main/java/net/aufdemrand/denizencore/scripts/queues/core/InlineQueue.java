@@ -0,0 +1,89 @@
+package net.aufdemrand.denizencore.scripts.queues.core;
+
+import net.aufdemrand.denizencore.objects.dList;
+import net.aufdemrand.denizencore.scripts.ScriptEntry;
+
+/**
+ * An instant queue for scripts run inline, on the caller's stack, that hand back a result:
+ * event handlers, procedures, and the like.
+ * <p/>
+ * Unlike other queues, it isn't listed among the active queues (so can't be found by ID) unless
+ * it needs to be: if it's identified to anything outside, or has to wait (EG, on a held command),
+ * it's promoted to a regular listed queue from then on. It always takes determinations, which {@link #run()} hands straight back.
+ */
+public class InlineQueue extends InstantQueue {
+
+    private boolean listed = false;
+
+    /**
+     * Creates an inline queue, which must then be given entries and started.
+     *
+     * @param prefix the name of the script running the new queue.
+     */
+    public InlineQueue(String prefix) {
+        super(null);
+        generateId(prefix);
+        setDeterminable();
+    }
+
+    /**
+     * Lists the queue among the active queues, if it isn't already, so it can be found by ID.
+     */
+    public void promote() {
+        if (listed) {
+            return;
+        }
+        listed = true;
+        if (is_started) {
+            super.register();
+        }
+    }
+
+    public boolean isListed() {
+        return listed;
+    }
+
+    /**
+     * Starts the queue, running it through right away (unless it has to wait), and returns its determinations.
+     *
+     * @return everything determined, in order (empty if nothing was).
+     */
+    public dList run() {
+        start();
+        return getDeterminations();
+    }
+
+    @Override
+    protected void register() {
+        if (listed) {
+            super.register();
+        }
+    }
+
+    @Override
+    public boolean holdFor(ScriptEntry entry) {
+        if (!super.holdFor(entry)) {
+            return false;
+        }
+        promote();
+        return true;
+    }
+
+    @Override
+    public boolean canSlice() {
+        // Whatever runs an inline queue expects it to be done when it returns
+        return false;
+    }
+
+    @Override
+    public String identify() {
+        promote();
+        return super.identify();
+    }
+
+    @Override
+    public String exposeId() {
+        promote();
+        return super.exposeId();
+    }
+}
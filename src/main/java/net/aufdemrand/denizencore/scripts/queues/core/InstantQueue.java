@@ -42,6 +42,18 @@ public class InstantQueue extends ScriptQueue {
         return scriptQueue;
     }
 
+    /**
+     * Creates a new stopped InstantQueue, with a generated id that's only formatted if asked for.
+     *
+     * @param prefix the name of the script running the new queue.
+     * @return a ScriptQueue
+     */
+    public static InstantQueue newQueue(String prefix) {
+        InstantQueue scriptQueue = new InstantQueue(null);
+        scriptQueue.generateId(prefix);
+        return scriptQueue;
+    }
+
 
     /////////////////////
     // Private instance fields and constructors
@@ -57,7 +69,7 @@ public class InstantQueue extends ScriptQueue {
 
     @Override
     public void onStart() {
-        while (is_started) {
+        while (is_started && !isHeld()) {
             revolve();
         }
     }
@@ -48,6 +48,19 @@ public class TimedQueue extends ScriptQueue implements Delayable {
         return scriptQueue;
     }
 
+    /**
+     * Creates a new stopped TimedQueue, at the default speed, with a generated id that's only formatted if asked for.
+     *
+     * @param prefix the name of the script running the new queue.
+     * @return a TimedQueue
+     */
+    public static TimedQueue newQueue(String prefix) {
+        TimedQueue scriptQueue = new TimedQueue(null,
+                Duration.valueOf(DenizenCore.getImplementation().scriptQueueSpeed()));
+        scriptQueue.generateId(prefix);
+        return scriptQueue;
+    }
+
     /////////////////////
     // Private instance fields and constructors
     /////////////////////
@@ -56,6 +69,10 @@ public class TimedQueue extends ScriptQueue implements Delayable {
     private Schedulable schedulable;
 
 
+    // This queue's place in the shared runner, while running
+    private TimedQueueRunner.Entry runnerEntry;
+
+
     // The speed of the engine, the # of ticks
     // between each revolution. Use setSpeed()
     // to change this.
@@ -65,17 +82,20 @@ public class TimedQueue extends ScriptQueue implements Delayable {
     // ScriptQueues can be paused mid-rotation.
     // The next entry will be held up until
     // un-paused.
-    protected boolean paused = false;
+    protected volatile boolean paused = false;
 
 
     // The delay in ticks can put off the
     // start of a queue
-    protected long delay_ticks = 0;
+    protected volatile long delay_ticks = 0;
 
 
     @Override
     public void delayFor(Duration duration) {
         delay_ticks = System.currentTimeMillis() + duration.getMillis();
+        if (runnerEntry != null) {
+            TimedQueueRunner.instance.changed(runnerEntry);
+        }
     }
 
     @Override
@@ -124,6 +144,9 @@ public class TimedQueue extends ScriptQueue implements Delayable {
     @Override
     public Delayable setPaused(boolean paused) {
         this.paused = paused;
+        if (!paused && runnerEntry != null) {
+            TimedQueueRunner.instance.changed(runnerEntry);
+        }
         return this;
     }
 
@@ -157,6 +180,10 @@ public class TimedQueue extends ScriptQueue implements Delayable {
         if (script_entries.isEmpty()) {
             return;
         }
+        if (!run_async) {
+            runnerEntry = TimedQueueRunner.instance.add(this, ticks);
+            return;
+        }
         Schedulable schedulable = new RepeatingSchedulable(
                 new Runnable() {
                     @Override
@@ -164,9 +191,7 @@ public class TimedQueue extends ScriptQueue implements Delayable {
                         revolve();
                     }
                 }, (ticks <= 0 ? 1 : ticks) / 20f);
-        if (run_async) {
-            schedulable = new AsyncSchedulable(schedulable);
-        }
+        schedulable = new AsyncSchedulable(schedulable);
         this.schedulable = schedulable;
         DenizenCore.schedule(schedulable);
     }
@@ -182,13 +207,40 @@ public class TimedQueue extends ScriptQueue implements Delayable {
         if (schedulable != null) {
             schedulable.cancel();
         }
+        if (runnerEntry != null) {
+            TimedQueueRunner.instance.remove(runnerEntry);
+            runnerEntry = null;
+        }
+    }
+
+
+    @Override
+    public void clear() {
+        super.clear();
+        if (runnerEntry != null) {
+            TimedQueueRunner.instance.changed(runnerEntry);
+        }
+    }
+
+
+    @Override
+    protected void onWake() {
+        // Revolve again on its next turn
+        if (runnerEntry != null) {
+            TimedQueueRunner.instance.changed(runnerEntry);
+        }
+    }
+
+
+    void revolveNow() {
+        revolve();
     }
 
 
     @Override
     protected boolean shouldRevolve() {
-        // Check if this Queue isn't paused
-        if (paused) {
+        // Check if this Queue isn't paused or waiting
+        if (paused || isHeld()) {
             return false;
         }
 
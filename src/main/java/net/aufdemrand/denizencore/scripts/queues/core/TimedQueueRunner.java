@@ -0,0 +1,316 @@
+package net.aufdemrand.denizencore.scripts.queues.core;
+
+import net.aufdemrand.denizencore.DenizenCore;
+import net.aufdemrand.denizencore.scripts.queues.ScriptQueue;
+import net.aufdemrand.denizencore.utilities.debugging.dB;
+import net.aufdemrand.denizencore.utilities.scheduling.RepeatingSchedulable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Revolves all running (non-async) timed queues from one schedulable, rather than one each.
+ * <p/>
+ * Queues are grouped by speed: each speed has a ring of buckets, one per tick of its period,
+ * and a queue sits in the bucket for its own phase, so each tick only visits the queues that are due.
+ * Delayed queues wait in a heap ordered by the time their delay ends, and paused queues (and those
+ * held waiting on a command) are set aside until resumed, so neither is looked at while waiting.
+ * <p/>
+ * Queues due in a tick are revolved in order of priority, then of how long they've been due.
+ * If a tick runs over {@link #tickBudgetNanos}, queues not yet reached are deferred to the next tick,
+ * except high priority queues and those already deferred for {@link #maxDeferTicks}, which always run.
+ * <p/>
+ * Only the ticking thread touches the buckets: queues started, resumed or re-delayed from
+ * other threads are handed over through a lock-free queue and placed on the next tick
+ * (see {@link #changed(Entry)}).
+ */
+public class TimedQueueRunner {
+
+    public static final TimedQueueRunner instance = new TimedQueueRunner();
+
+    /**
+     * Most time, in nanoseconds, to spend revolving queues in a single tick before deferring
+     * the rest to the next tick. 0 for no limit.
+     */
+    public static long tickBudgetNanos = 0;
+
+    /**
+     * Most ticks a queue may be deferred in a row, after which it runs regardless of the budget.
+     */
+    public static int maxDeferTicks = 20;
+
+    enum State {
+        WAITING, RUNNING, DELAYED, PAUSED, STOPPED
+    }
+
+    static class Entry {
+
+        final TimedQueue queue;
+
+        // Speed, in ticks, as of when the queue started
+        final int speed;
+
+        int phase;
+
+        volatile State state = State.WAITING;
+
+        // Time the current delay ends, in System.currentTimeMillis() format
+        long wakeAt;
+
+        // Tick the queue has been due since, or -1 if it isn't waiting to revolve
+        long dueSince = -1;
+
+        Entry(TimedQueue queue, int speed) {
+            this.queue = queue;
+            this.speed = speed;
+        }
+    }
+
+    private static class Wake implements Comparable<Wake> {
+
+        final Entry entry;
+
+        final long wakeAt;
+
+        Wake(Entry entry, long wakeAt) {
+            this.entry = entry;
+            this.wakeAt = wakeAt;
+        }
+
+        @Override
+        public int compareTo(Wake other) {
+            return Long.compare(wakeAt, other.wakeAt);
+        }
+    }
+
+    // Buckets by speed, then by phase
+    private final Map<Integer, List<List<Entry>>> rings = new HashMap<Integer, List<List<Entry>>>();
+
+    private final List<List<List<Entry>>> ringList = new ArrayList<List<List<Entry>>>();
+
+    private final PriorityQueue<Wake> delayed = new PriorityQueue<Wake>();
+
+    private final ConcurrentLinkedQueue<Entry> submitted = new ConcurrentLinkedQueue<Entry>();
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    // Queues due to revolve this tick, including any deferred from earlier ticks
+    private final List<Entry> due = new ArrayList<Entry>();
+
+    private static final Comparator<Entry> dueOrder = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            int result = a.queue.priority.compareTo(b.queue.priority);
+            return result != 0 ? result : Long.compare(a.dueSince, b.dueSince);
+        }
+    };
+
+    private long tick = 0;
+
+    private int running = 0;
+
+    private long deferredCount = 0;
+
+    /**
+     * Returns how many queues are currently being revolved (not counting delayed or paused ones).
+     */
+    public int getRunningCount() {
+        return running;
+    }
+
+    /**
+     * Returns how many queues are currently waiting out a delay.
+     */
+    public int getDelayedCount() {
+        return delayed.size();
+    }
+
+    /**
+     * Returns how many times a queue has been deferred to a later tick for being over budget.
+     */
+    public long getDeferredCount() {
+        return deferredCount;
+    }
+
+    Entry add(TimedQueue queue, long speed) {
+        Entry entry = new Entry(queue, speed <= 0 ? 1 : (int) Math.min(speed, Integer.MAX_VALUE));
+        submit(entry);
+        if (started.compareAndSet(false, true)) {
+            DenizenCore.schedule(new RepeatingSchedulable(new Runnable() {
+                @Override
+                public void run() {
+                    tick();
+                }
+            }, 1 / 20f));
+        }
+        return entry;
+    }
+
+    void submit(Entry entry) {
+        submitted.add(entry);
+    }
+
+    void remove(Entry entry) {
+        entry.state = State.STOPPED;
+    }
+
+    /**
+     * Called when a queue is unpaused, woken, re-delayed or cleared, so it's looked at again if it was set aside.
+     * <p/>
+     * Always hands the queue over, whatever state it seems to be in: the ticking thread may be just about to
+     * set it aside on seeing it paused (or held, or delayed) from before the change. The next tick ignores
+     * it if it's still running, or if it's been placed already.
+     */
+    void changed(Entry entry) {
+        submit(entry);
+    }
+
+    private List<List<Entry>> getRing(int speed) {
+        List<List<Entry>> ring = rings.get(speed);
+        if (ring == null) {
+            ring = new ArrayList<List<Entry>>(speed);
+            for (int i = 0; i < speed; i++) {
+                ring.add(new ArrayList<Entry>());
+            }
+            rings.put(speed, ring);
+            ringList.add(ring);
+        }
+        return ring;
+    }
+
+    private void run(Entry entry) {
+        entry.state = State.RUNNING;
+        getRing(entry.speed).get(entry.phase).add(entry);
+        running++;
+    }
+
+    private void delay(Entry entry) {
+        entry.state = State.DELAYED;
+        entry.wakeAt = entry.queue.delay_ticks;
+        delayed.add(new Wake(entry, entry.wakeAt));
+    }
+
+    // Works out where a queue belongs, having not been in the buckets
+    private void place(Entry entry) {
+        // An emptied queue goes straight back to the buckets, so it can stop on its next turn
+        if (entry.queue.script_entries.isEmpty()) {
+            run(entry);
+        }
+        else if (entry.queue.isPaused() || entry.queue.isHeld()) {
+            entry.state = State.PAUSED;
+        }
+        else if (entry.queue.isDelayed()) {
+            delay(entry);
+        }
+        else {
+            run(entry);
+        }
+    }
+
+    void tick() {
+        tick++;
+        Entry entry;
+        while ((entry = submitted.poll()) != null) {
+            switch (entry.state) {
+                case WAITING:
+                    // First revolution is a full period after starting, as when scheduled on its own
+                    entry.phase = (int) ((tick - 1) % entry.speed);
+                    place(entry);
+                    break;
+                case PAUSED:
+                    place(entry);
+                    break;
+                case DELAYED:
+                    // Re-delayed, or emptied so it can stop
+                    if (entry.wakeAt != entry.queue.delay_ticks || entry.queue.script_entries.isEmpty()) {
+                        place(entry);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        long now = System.currentTimeMillis();
+        Wake wake;
+        while ((wake = delayed.peek()) != null && wake.wakeAt <= now) {
+            delayed.poll();
+            // Skip any left behind by the delay being changed
+            if (wake.entry.state == State.DELAYED && wake.wakeAt == wake.entry.wakeAt) {
+                place(wake.entry);
+            }
+        }
+        for (int i = 0; i < ringList.size(); i++) {
+            List<List<Entry>> ring = ringList.get(i);
+            collectBucket(ring.get((int) (tick % ring.size())));
+        }
+        runDue();
+    }
+
+    private void runDue() {
+        Collections.sort(due, dueOrder);
+        long start = System.nanoTime();
+        int kept = 0;
+        for (int i = 0; i < due.size(); i++) {
+            Entry entry = due.get(i);
+            if (entry.state != State.RUNNING) {
+                entry.dueSince = -1;
+                continue;
+            }
+            if (tickBudgetNanos > 0 && entry.queue.priority != ScriptQueue.Priority.HIGH
+                    && tick - entry.dueSince < maxDeferTicks && System.nanoTime() - start >= tickBudgetNanos) {
+                deferredCount++;
+                due.set(kept++, entry);
+                continue;
+            }
+            entry.dueSince = -1;
+            try {
+                entry.queue.revolveNow();
+            }
+            catch (Throwable ex) {
+                dB.echoError(ex);
+            }
+        }
+        while (due.size() > kept) {
+            due.remove(due.size() - 1);
+        }
+    }
+
+    // Sorts out the queues in a bucket, adding those ready to revolve to the due list
+    private void collectBucket(List<Entry> bucket) {
+        int kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            Entry entry = bucket.get(i);
+            if (entry.state == State.RUNNING) {
+                // An emptied queue revolves regardless, so that it stops
+                boolean empty = entry.queue.script_entries.isEmpty();
+                if (!empty && (entry.queue.isPaused() || entry.queue.isHeld())) {
+                    entry.state = State.PAUSED;
+                }
+                else if (!empty && entry.queue.isDelayed()) {
+                    delay(entry);
+                }
+                else if (entry.dueSince < 0) {
+                    // Not if it's still due from before, having been deferred
+                    entry.dueSince = tick;
+                    due.add(entry);
+                }
+            }
+            if (entry.state == State.RUNNING) {
+                bucket.set(kept++, entry);
+            }
+            else {
+                running--;
+            }
+        }
+        while (bucket.size() > kept) {
+            bucket.remove(bucket.size() - 1);
+        }
+    }
+}
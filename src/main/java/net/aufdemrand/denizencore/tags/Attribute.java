@@ -1,15 +1,18 @@
 package net.aufdemrand.denizencore.tags;
 
 import net.aufdemrand.denizencore.DenizenCore;
+import net.aufdemrand.denizencore.objects.TagRunnable;
 import net.aufdemrand.denizencore.objects.dObject;
 import net.aufdemrand.denizencore.scripts.ScriptEntry;
+import net.aufdemrand.denizencore.utilities.BoundedCache;
 import net.aufdemrand.denizencore.utilities.CoreUtilities;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -36,6 +39,43 @@ public class Attribute {
             key = CoreUtilities.toLowerCase(rawKey);
         }
 
+        public TagManager.HandlerBinding<TagRunnable.ObjectForm> boundTag = null;
+
+        // The binding for the type bound before the current one, so a component that tags objects
+        // of two types in turn (EG, an element on one read and a list on the next) isn't rebound each time
+        public TagManager.HandlerBinding<TagRunnable.ObjectForm> otherBoundTag = null;
+
+        public TagRunnable.ObjectForm bindObjectTag(Class<? extends dObject> type, Map<String, TagRunnable.ObjectForm> registry) {
+            TagRunnable.ObjectForm tag = registry.get(key);
+            TagManager.HandlerBinding<TagRunnable.ObjectForm> previous = boundTag;
+            if (previous != null && previous.type != type) {
+                otherBoundTag = previous;
+            }
+            boundTag = new TagManager.HandlerBinding<TagRunnable.ObjectForm>(type, tag, TagManager.handlerVersion);
+            return tag;
+        }
+
+        /**
+         * Gets the object tag handler for this component, using a bound handler when
+         * the object type matches either of the last two bound, or resolving it from the registry otherwise.
+         *
+         * @param type     the runtime type of the object being tagged.
+         * @param registry the object tag registry for that type.
+         * @return the handler, or null if the type has no such tag.
+         */
+        public TagRunnable.ObjectForm getObjectTag(Class<? extends dObject> type, Map<String, TagRunnable.ObjectForm> registry) {
+            int version = TagManager.handlerVersion;
+            TagManager.HandlerBinding<TagRunnable.ObjectForm> bound = boundTag;
+            if (bound != null && bound.type == type && bound.version == version) {
+                return bound.handler;
+            }
+            bound = otherBoundTag;
+            if (bound != null && bound.type == type && bound.version == version) {
+                return bound.handler;
+            }
+            return bindObjectTag(type, registry);
+        }
+
         @Override
         public String toString() {
             if (context != null) {
@@ -45,9 +85,10 @@ public class Attribute {
         }
     }
 
-    private static HashMap<String, AttributeComponent[]> attribsLookup = new HashMap<String, AttributeComponent[]>();
+    public static final BoundedCache<String, AttributeComponent[]> attribsLookup
+            = new BoundedCache<String, AttributeComponent[]>("Attributes", 16384, 1024 * 1024, BoundedCache.<AttributeComponent[]>keyLength());
 
-    private static AttributeComponent[] separate_attributes(String attributes) {
+    private static AttributeComponent[] separate_attributes(String attributes, boolean cache) {
 
         AttributeComponent[] matchesRes = attribsLookup.get(attributes);
 
@@ -97,7 +138,9 @@ public class Attribute {
         matchesRes = new AttributeComponent[matches.size()];
         matchesRes = matches.toArray(matchesRes);
 
-        attribsLookup.put(attributes, matchesRes);
+        if (cache) {
+            attribsLookup.put(attributes, matchesRes);
+        }
 
         return matchesRes;
     }
@@ -110,7 +153,6 @@ public class Attribute {
 
     private String raw_tag;
     private String raw_tag_low;
-    private int rawtaglen = -1;
     String origin;
 
     public String getRawTag() {
@@ -140,11 +182,45 @@ public class Attribute {
         hadAlternative = ref.hadAlternative;
     }
 
+    /**
+     * Points this attribute at another parsed tag, as if newly constructed, reusing its context array.
+     */
+    void reset(Attribute ref, ScriptEntry scriptEntry, TagContext context) {
+        origin = ref.origin;
+        this.scriptEntry = scriptEntry;
+        this.context = context;
+        attributes = ref.attributes;
+        if (contexts.length < attributes.length) {
+            contexts = new dObject[attributes.length];
+        }
+        else {
+            Arrays.fill(contexts, null);
+        }
+        hadAlternative = ref.hadAlternative;
+        fulfilled = 0;
+        raw_tag = null;
+        raw_tag_low = null;
+    }
+
+    void clear() {
+        scriptEntry = null;
+        context = null;
+        Arrays.fill(contexts, null);
+    }
+
     public Attribute(String attributes, ScriptEntry scriptEntry, TagContext context) {
+        this(attributes, scriptEntry, context, true);
+    }
+
+    /**
+     * @param cache whether the parsed attributes may be memoized. Pass false when the input
+     *              was generated at runtime (EG, filled from a tag), as it's unlikely to recur.
+     */
+    public Attribute(String attributes, ScriptEntry scriptEntry, TagContext context, boolean cache) {
         origin = attributes;
         this.scriptEntry = scriptEntry;
         this.context = context;
-        this.attributes = separate_attributes(attributes);
+        this.attributes = separate_attributes(attributes, cache);
         contexts = new dObject[this.attributes.length];
     }
 
@@ -155,6 +231,17 @@ public class Attribute {
         return attributes[fulfilled].key.equalsIgnoreCase(string);
     }
 
+    public TagRunnable.ObjectForm getObjectTag(Class<? extends dObject> type, Map<String, TagRunnable.ObjectForm> registry) {
+        if (fulfilled >= attributes.length) {
+            return null;
+        }
+        TagRunnable.ObjectForm tag = attributes[fulfilled].getObjectTag(type, registry);
+        if (tag != null) {
+            ConstantFolder.checkPure(this, tag.isPure);
+        }
+        return tag;
+    }
+
     public boolean startsWith(String string) {
         if (fulfilled >= attributes.length) {
             return false;
@@ -191,6 +278,7 @@ public class Attribute {
     }
 
     public Attribute fulfill(int attributes) {
+        TagWatchdog.check();
         fulfilled += attributes;
         return this;
     }
@@ -201,7 +289,7 @@ public class Attribute {
             raw_tag_low = "";
             return;
         }
-        if (fulfilled == rawtaglen) {
+        if (raw_tag != null) {
             return;
         }
         StringBuilder sb = new StringBuilder();
@@ -213,7 +301,6 @@ public class Attribute {
             raw_tag = raw_tag.substring(0, raw_tag.length() - 1);
         }
         raw_tag_low = CoreUtilities.toLowerCase(raw_tag);
-        rawtaglen = fulfilled;
     }
 
     public boolean hasContext(int attribute) {
@@ -224,6 +311,17 @@ public class Attribute {
         return attributes[attribute].context != null;
     }
 
+    /**
+     * Returns whether an attribute's context contains tags, meaning its filled value can differ between reads.
+     */
+    public boolean hasDynamicContext(int attribute) {
+        attribute += fulfilled - 1;
+        if (attribute < 0 || attribute >= attributes.length) {
+            return false;
+        }
+        return attributes[attribute].context != null && attributes[attribute].context.indexOf('<') != -1;
+    }
+
     public dObject getContextObject(int attribute) {
         attribute += fulfilled - 1;
         if (attribute < 0 || attribute >= attributes.length) {
@@ -292,7 +390,7 @@ public class Attribute {
         if (num < 0 || num >= attributes.length) {
             return "";
         }
-        return CoreUtilities.toLowerCase(attributes[num].key);
+        return attributes[num].key;
     }
 
     public String unfilledString() {
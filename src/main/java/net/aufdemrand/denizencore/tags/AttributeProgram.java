@@ -0,0 +1,98 @@
+package net.aufdemrand.denizencore.tags;
+
+import net.aufdemrand.denizencore.objects.dObject;
+import net.aufdemrand.denizencore.utilities.CoreUtilities;
+
+/**
+ * A tag given as an argument to another tag (EG, the 'to_uppercase' in 'li@a|b.parse[to_uppercase]'),
+ * parsed once and then run against any number of objects.
+ * Contexts within the program that hold plain text are read once up front and shared by every run.
+ */
+public class AttributeProgram {
+
+    private final Attribute template;
+
+    private final dObject[] constantContexts;
+
+    /**
+     * Compiles the context of one of an attribute's parts into a program.
+     *
+     * @param attribute the tag taking the argument.
+     * @param num       which part of the tag holds the argument, as with {@link Attribute#getContext(int)}.
+     * @return the program, or null if that part has no context.
+     */
+    public static AttributeProgram compile(Attribute attribute, int num) {
+        String source = attribute.getContext(num);
+        if (source == null) {
+            return null;
+        }
+        return new AttributeProgram(new Attribute(source, attribute.getScriptEntry(), attribute.context,
+                !attribute.hasDynamicContext(num)));
+    }
+
+    private AttributeProgram(Attribute template) {
+        this.template = template;
+        dObject[] contexts = null;
+        for (int i = 0; i < template.attributes.length; i++) {
+            String context = template.attributes[i].context;
+            if (context != null && context.indexOf('<') == -1) {
+                if (contexts == null) {
+                    contexts = new dObject[template.attributes.length];
+                }
+                contexts[i] = TagManager.tagObject(context, template.context);
+            }
+        }
+        constantContexts = contexts;
+    }
+
+    /**
+     * Returns whether every context in the program is plain text, so running it reads no other tags.
+     */
+    public boolean hasConstantContexts() {
+        for (int i = 0; i < template.attributes.length; i++) {
+            if (template.attributes[i].context != null && (constantContexts == null || constantContexts[i] == null)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public TagContext getContext() {
+        return template.context;
+    }
+
+    /**
+     * Gets a fresh attribute for one run of the program.
+     */
+    public Attribute newAttribute(boolean hadAlternative) {
+        return newAttribute(hadAlternative, template.context);
+    }
+
+    /**
+     * Gets a fresh attribute for one run of the program, under a different tag context.
+     */
+    public Attribute newAttribute(boolean hadAlternative, TagContext context) {
+        Attribute attribute = new Attribute(template, template.scriptEntry, context);
+        if (constantContexts != null) {
+            System.arraycopy(constantContexts, 0, attribute.contexts, 0, constantContexts.length);
+        }
+        attribute.setHadAlternative(hadAlternative);
+        return attribute;
+    }
+
+    /**
+     * Runs the program against an object, as {@link CoreUtilities#autoAttribTyped(dObject, Attribute)}.
+     */
+    public dObject run(dObject object, boolean hadAlternative) {
+        return CoreUtilities.autoAttribTyped(object, newAttribute(hadAlternative));
+    }
+
+    public dObject run(dObject object, boolean hadAlternative, TagContext context) {
+        return CoreUtilities.autoAttribTyped(object, newAttribute(hadAlternative, context));
+    }
+
+    @Override
+    public String toString() {
+        return template.getOrigin();
+    }
+}
@@ -0,0 +1,196 @@
+package net.aufdemrand.denizencore.tags;
+
+import net.aufdemrand.denizencore.objects.Element;
+import net.aufdemrand.denizencore.objects.ObjectFetcher;
+import net.aufdemrand.denizencore.objects.TagRunnable;
+import net.aufdemrand.denizencore.objects.dList;
+import net.aufdemrand.denizencore.objects.dObject;
+import net.aufdemrand.denizencore.scripts.ScriptEntryData;
+import net.aufdemrand.denizencore.utilities.CoreUtilities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Calculates constant tags once, when a script entry is built, rather than every time it runs.
+ * A tag is constant when it starts from an element or list literal (or a root tag that reports
+ * itself pure), has no tags inside its contexts, and only passes through {@link TagRunnable.Pure} tags.
+ * Folding runs the tag under a special context, and gives up as soon as it reaches anything else.
+ */
+public class ConstantFolder {
+
+    public static boolean enabled = true;
+
+    private static class NotConstantError extends Error {
+
+        private static final long serialVersionUID = 1L;
+
+        NotConstantError() {
+            super("Tag is not constant", null, false, false);
+        }
+    }
+
+    private static final NotConstantError NOT_CONSTANT = new NotConstantError();
+
+    private static final ThreadLocal<Boolean> folding = new ThreadLocal<Boolean>();
+
+    static class FoldingContext extends TagContext {
+
+        final TagContext base;
+
+        FoldingContext(TagContext base) {
+            super(false, false, base.entry, base.script, base.definitionProvider);
+            this.base = base;
+        }
+
+        @Override
+        public ScriptEntryData getScriptEntryData() {
+            return base.getScriptEntryData();
+        }
+    }
+
+    /**
+     * Abandons the current fold if the tag has reached code that isn't known to be pure.
+     *
+     * @param attribute the tag being calculated.
+     * @param pure      whether the code about to run is pure.
+     */
+    public static void checkPure(Attribute attribute, boolean pure) {
+        if (!pure && attribute.context instanceof FoldingContext) {
+            throw NOT_CONSTANT;
+        }
+    }
+
+    /**
+     * Abandons the current fold, if this thread is folding. Used where an error would
+     * otherwise be shown, so that the error shows up when the tag runs rather than at load.
+     */
+    public static void checkNoError() {
+        if (folding.get() != null) {
+            throw NOT_CONSTANT;
+        }
+    }
+
+    /**
+     * Sets whether this thread is running tags that must turn out pure, as when folding.
+     * While set, anything impure or erroring abandons the tag rather than running or showing output.
+     * Runs of tags may nest (EG, a pure tag reading tags in parallel), so callers should restore the previous state when done.
+     *
+     * @return whether the thread was folding before.
+     */
+    static boolean setFolding(boolean active) {
+        boolean was = folding.get() != null;
+        if (active) {
+            folding.set(Boolean.TRUE);
+        }
+        else {
+            folding.remove();
+        }
+        return was;
+    }
+
+    /**
+     * Replaces constant tags in a tag chain with their results, and joins up adjacent constant text.
+     *
+     * @param pieces  the chain, which is modified in place. Pieces themselves are never modified.
+     * @param context the context the chain was generated in.
+     */
+    public static void fold(List<TagManager.ParseableTagPiece> pieces, TagContext context) {
+        if (!enabled) {
+            return;
+        }
+        boolean changed = false;
+        for (int i = 0; i < pieces.size(); i++) {
+            TagManager.ParseableTagPiece piece = pieces.get(i);
+            if (!piece.isTag || !isCandidate(piece.tagData, context)) {
+                continue;
+            }
+            dObject result = calculate(piece, context);
+            if (result == null) {
+                continue;
+            }
+            // A chain of one tag returns the tag's own object, so only fold immutable results there.
+            if (!(result instanceof Element)) {
+                if (pieces.size() == 1) {
+                    continue;
+                }
+                result = new Element(result.toString());
+            }
+            TagManager.ParseableTagPiece folded = new TagManager.ParseableTagPiece();
+            folded.content = piece.content;
+            folded.objResult = result;
+            pieces.set(i, folded);
+            changed = true;
+        }
+        if (changed && pieces.size() > 1) {
+            mergeText(pieces);
+        }
+    }
+
+    private static boolean isConstant(TagManager.ParseableTagPiece piece) {
+        return !piece.isTag && !piece.isError;
+    }
+
+    private static String textOf(TagManager.ParseableTagPiece piece) {
+        return piece.objResult != null ? piece.objResult.toString() : piece.content;
+    }
+
+    private static void mergeText(List<TagManager.ParseableTagPiece> pieces) {
+        List<TagManager.ParseableTagPiece> merged = new ArrayList<TagManager.ParseableTagPiece>(pieces.size());
+        for (TagManager.ParseableTagPiece piece : pieces) {
+            int last = merged.size() - 1;
+            if (last >= 0 && isConstant(piece) && isConstant(merged.get(last))) {
+                TagManager.ParseableTagPiece joined = new TagManager.ParseableTagPiece();
+                joined.content = textOf(merged.get(last)) + textOf(piece);
+                merged.set(last, joined);
+            }
+            else {
+                merged.add(piece);
+            }
+        }
+        pieces.clear();
+        pieces.addAll(merged);
+    }
+
+    private static boolean isCandidate(ReplaceableTagEvent.ReferenceData ref, TagContext context) {
+        if (ref == null || ref.isInstant || ref.attribs.attributes.length == 0) {
+            return false;
+        }
+        if (ref.value != null && ref.value.indexOf('<') != -1) {
+            return false;
+        }
+        for (Attribute.AttributeComponent component : ref.attribs.attributes) {
+            if (component.context != null && component.context.indexOf('<') != -1) {
+                return false;
+            }
+        }
+        if (ref.isObjectFetch) {
+            String type = CoreUtilities.split(ref.attribs.attributes[0].rawKey, '@').get(0);
+            Class<?> object = ObjectFetcher.getObjectClass(CoreUtilities.toLowerCase(type));
+            return object == Element.class || object == dList.class;
+        }
+        TagRunnable.RootForm handler = TagManager.getRootHandler(ref);
+        return handler != null && handler.isPure(new Attribute(ref.attribs, context.entry, context));
+    }
+
+    private static dObject calculate(TagManager.ParseableTagPiece piece, TagContext context) {
+        ReplaceableTagEvent event = new ReplaceableTagEvent(piece.tagData, piece.content, new FoldingContext(context));
+        boolean wasFolding = setFolding(true);
+        try {
+            // Run the root directly, as firing the event would fall back to legacy handlers
+            if (piece.tagData.isObjectFetch) {
+                TagManager.fetchObject(event);
+            }
+            else {
+                TagManager.getRootHandler(piece.tagData).run(event);
+            }
+        }
+        catch (Throwable ex) {
+            return null;
+        }
+        finally {
+            setFolding(wasFolding);
+        }
+        return event.replaced() ? event.getReplacedObj() : null;
+    }
+}
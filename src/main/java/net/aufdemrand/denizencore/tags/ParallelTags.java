@@ -0,0 +1,235 @@
+package net.aufdemrand.denizencore.tags;
+
+import net.aufdemrand.denizencore.objects.Element;
+import net.aufdemrand.denizencore.objects.aH;
+import net.aufdemrand.denizencore.objects.dObject;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits work over large lists (EG, 'li@...parse[...]' or '.sum') across a fork-join pool.
+ * Tag programs only run in parallel when they turn out to use nothing but {@link net.aufdemrand.denizencore.objects.TagRunnable.Pure}
+ * tags: each part runs under the same rules as constant folding, and if any part reaches an impure tag
+ * (or an error), the whole list is left for the caller to run in order as usual.
+ * Results always come back in list order.
+ */
+public class ParallelTags {
+
+    public static boolean enabled = true;
+
+    /**
+     * Smallest list that's worth splitting up.
+     */
+    public static int threshold = 2048;
+
+    /**
+     * Most list entries handled by a single task.
+     */
+    public static int chunkSize = 256;
+
+    public static ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private static boolean shouldSplit(int size) {
+        return enabled && size >= threshold && pool.getParallelism() > 1;
+    }
+
+    private abstract static class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        final int start;
+
+        final int end;
+
+        final AtomicBoolean abandoned;
+
+        ChunkTask(int start, int end, AtomicBoolean abandoned) {
+            this.start = start;
+            this.end = end;
+            this.abandoned = abandoned;
+        }
+
+        abstract ChunkTask part(int start, int end);
+
+        abstract void runChunk();
+
+        @Override
+        protected void compute() {
+            if (abandoned.get()) {
+                return;
+            }
+            if (end - start > chunkSize) {
+                int middle = (start + end) >>> 1;
+                invokeAll(part(start, middle), part(middle, end));
+            }
+            else {
+                runChunk();
+            }
+        }
+    }
+
+    private static class ProgramTask extends ChunkTask {
+
+        private static final long serialVersionUID = 1L;
+
+        final AttributeProgram program;
+
+        final TagContext context;
+
+        final boolean hadAlternative;
+
+        final List<dObject> objects;
+
+        final dObject[] results;
+
+        ProgramTask(AttributeProgram program, TagContext context, boolean hadAlternative, List<dObject> objects,
+                    dObject[] results, int start, int end, AtomicBoolean abandoned) {
+            super(start, end, abandoned);
+            this.program = program;
+            this.context = context;
+            this.hadAlternative = hadAlternative;
+            this.objects = objects;
+            this.results = results;
+        }
+
+        @Override
+        ChunkTask part(int start, int end) {
+            return new ProgramTask(program, context, hadAlternative, objects, results, start, end, abandoned);
+        }
+
+        @Override
+        void runChunk() {
+            boolean wasFolding = ConstantFolder.setFolding(true);
+            try {
+                for (int i = start; i < end; i++) {
+                    if (abandoned.get()) {
+                        return;
+                    }
+                    dObject object = objects.get(i);
+                    // Text with @ notation may be fetched as any object type, which isn't safe off the main thread
+                    if (object instanceof Element && object.toString().indexOf('@') != -1) {
+                        abandoned.set(true);
+                        return;
+                    }
+                    results[i] = program.run(object, hadAlternative, context);
+                }
+            }
+            catch (Throwable ex) {
+                abandoned.set(true);
+            }
+            finally {
+                ConstantFolder.setFolding(wasFolding);
+            }
+        }
+    }
+
+    private static class DoubleTask extends ChunkTask {
+
+        private static final long serialVersionUID = 1L;
+
+        final List<String> values;
+
+        final double[] results;
+
+        DoubleTask(List<String> values, double[] results, int start, int end, AtomicBoolean abandoned) {
+            super(start, end, abandoned);
+            this.values = values;
+            this.results = results;
+        }
+
+        @Override
+        ChunkTask part(int start, int end) {
+            return new DoubleTask(values, results, start, end, abandoned);
+        }
+
+        @Override
+        void runChunk() {
+            for (int i = start; i < end; i++) {
+                results[i] = aH.getDoubleFrom(values.get(i));
+            }
+        }
+    }
+
+    private static class CountTask extends ChunkTask {
+
+        private static final long serialVersionUID = 1L;
+
+        final List<String> values;
+
+        final String match;
+
+        final AtomicInteger count;
+
+        CountTask(List<String> values, String match, AtomicInteger count, int start, int end, AtomicBoolean abandoned) {
+            super(start, end, abandoned);
+            this.values = values;
+            this.match = match;
+            this.count = count;
+        }
+
+        @Override
+        ChunkTask part(int start, int end) {
+            return new CountTask(values, match, count, start, end, abandoned);
+        }
+
+        @Override
+        void runChunk() {
+            int found = 0;
+            for (int i = start; i < end; i++) {
+                if (values.get(i).equalsIgnoreCase(match)) {
+                    found++;
+                }
+            }
+            count.addAndGet(found);
+        }
+    }
+
+    /**
+     * Runs a tag program against every object in a list, in parallel.
+     *
+     * @return the results, in list order, or null if the list should be handled in order by the caller instead
+     * (because it's too small, or the program isn't pure for every object).
+     */
+    public static dObject[] run(AttributeProgram program, List<dObject> objects, boolean hadAlternative) {
+        if (!shouldSplit(objects.size()) || !program.hasConstantContexts()) {
+            return null;
+        }
+        dObject[] results = new dObject[objects.size()];
+        AtomicBoolean abandoned = new AtomicBoolean(false);
+        pool.invoke(new ProgramTask(program, new ConstantFolder.FoldingContext(program.getContext()), hadAlternative,
+                objects, results, 0, results.length, abandoned));
+        return abandoned.get() ? null : results;
+    }
+
+    /**
+     * Reads every value in a list as a number (as {@link aH#getDoubleFrom(String)}), in parallel.
+     *
+     * @return the numbers, in list order, or null if the list is too small to be worth splitting.
+     */
+    public static double[] toDoubles(List<String> values) {
+        if (!shouldSplit(values.size())) {
+            return null;
+        }
+        double[] results = new double[values.size()];
+        pool.invoke(new DoubleTask(values, results, 0, results.length, new AtomicBoolean(false)));
+        return results;
+    }
+
+    /**
+     * Counts the values in a list that match the given text (ignoring case), in parallel.
+     *
+     * @return the count, or -1 if the list is too small to be worth splitting.
+     */
+    public static int countMatches(List<String> values, String match) {
+        if (!shouldSplit(values.size())) {
+            return -1;
+        }
+        AtomicInteger count = new AtomicInteger();
+        pool.invoke(new CountTask(values, match, count, 0, values.size(), new AtomicBoolean(false)));
+        return count.get();
+    }
+}
@@ -1,18 +1,19 @@
 package net.aufdemrand.denizencore.tags;
 
 import net.aufdemrand.denizencore.objects.Element;
+import net.aufdemrand.denizencore.objects.TagRunnable;
 import net.aufdemrand.denizencore.objects.dObject;
 import net.aufdemrand.denizencore.objects.dScript;
 import net.aufdemrand.denizencore.scripts.ScriptEntry;
+import net.aufdemrand.denizencore.utilities.BoundedCache;
 import net.aufdemrand.denizencore.utilities.CoreUtilities;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
 
-import java.util.HashMap;
 import java.util.List;
 
 public class ReplaceableTagEvent {
 
-    private final TagContext context;
+    private TagContext context;
 
     private boolean wasReplaced = false;
 
@@ -49,11 +50,18 @@ public class ReplaceableTagEvent {
         public String rawTag = null;
 
         public String value = null;
+
+        public boolean isObjectFetch = false;
+
+        public Class<? extends dObject> objectType = null;
+
+        public TagManager.HandlerBinding<TagRunnable.RootForm> rootHandler = null;
     }
 
     public ReferenceData mainRef = null;
 
-    public static HashMap<String, ReferenceData> refs = new HashMap<String, ReferenceData>();
+    public static final BoundedCache<String, ReferenceData> refs
+            = new BoundedCache<String, ReferenceData>("Tag references", 16384, 1024 * 1024, BoundedCache.<ReferenceData>keyLength());
 
     public ReplaceableTagEvent(ReferenceData ref, String tag, TagContext context) {
         // Reference context
@@ -71,7 +79,39 @@ public class ReplaceableTagEvent {
         }
     }
 
+    /**
+     * Reinitializes this event to read another parsed tag, for reuse by {@link TagCursorPool}.
+     */
+    void reset(ReferenceData ref, String tag, TagContext context) {
+        this.context = context;
+        wasReplaced = false;
+        alternative_tagged = null;
+        value_tagged = null;
+        replaced_obj = null;
+        replaced = tag;
+        mainRef = ref;
+        core_attributes.reset(ref.attribs, context.entry, context);
+        raw_tag = ref.rawTag;
+    }
+
+    void clear() {
+        context = null;
+        alternative_tagged = null;
+        value_tagged = null;
+        replaced_obj = null;
+        replaced = null;
+        mainRef = null;
+        core_attributes.clear();
+    }
+
     public ReplaceableTagEvent(String tag, TagContext context) {
+        this(tag, context, true);
+    }
+
+    /**
+     * @param cache whether the parsed tag may be memoized. Pass false for tags generated at runtime.
+     */
+    public ReplaceableTagEvent(String tag, TagContext context, boolean cache) {
         this(refs.get(tag), tag, context);
         if (mainRef != null) {
             return;
@@ -111,12 +151,15 @@ public class ReplaceableTagEvent {
         raw_tag = tag.trim();
 
         // Use Attributes system to get type/subtype/etc. etc. for 'static/legacy' tags.
-        core_attributes = new Attribute(raw_tag, context.entry, context);
+        core_attributes = new Attribute(raw_tag, context.entry, context, cache);
         core_attributes.setHadAlternative(hasAlternative());
 
         mainRef.attribs = new Attribute(core_attributes, null, null);
         mainRef.rawTag = raw_tag;
-        refs.put(otag, mainRef);
+        TagManager.bindHandlers(mainRef);
+        if (cache) {
+            refs.put(otag, mainRef);
+        }
     }
 
     private static int locateValue(String tag) {
@@ -0,0 +1,54 @@
+package net.aufdemrand.denizencore.tags;
+
+/**
+ * Per-thread, reusable tag events (and their attribute cursors), so reading a parsed tag
+ * doesn't allocate anything but its result. Tags read within tags (EG, in contexts) take the
+ * next event down the stack, so each nesting depth has its own.
+ * <p/>
+ * Only enable this if no tag handler keeps hold of its event or attribute after it returns.
+ */
+public class TagCursorPool {
+
+    public static boolean enabled = false;
+
+    private static final ThreadLocal<TagCursorPool> pools = new ThreadLocal<TagCursorPool>() {
+        @Override
+        protected TagCursorPool initialValue() {
+            return new TagCursorPool();
+        }
+    };
+
+    private ReplaceableTagEvent[] events = new ReplaceableTagEvent[8];
+
+    private int depth = 0;
+
+    public static TagCursorPool get() {
+        return pools.get();
+    }
+
+    /**
+     * Gets an event ready to read the given tag. Must be followed by {@link #release()}.
+     */
+    public ReplaceableTagEvent acquire(ReplaceableTagEvent.ReferenceData ref, String tag, TagContext context) {
+        if (depth == events.length) {
+            ReplaceableTagEvent[] grown = new ReplaceableTagEvent[events.length * 2];
+            System.arraycopy(events, 0, grown, 0, events.length);
+            events = grown;
+        }
+        ReplaceableTagEvent event = events[depth];
+        if (event == null) {
+            event = new ReplaceableTagEvent(ref, tag, context);
+            events[depth] = event;
+        }
+        else {
+            event.reset(ref, tag, context);
+        }
+        depth++;
+        return event;
+    }
+
+    public void release() {
+        // Drop references to the finished tag's objects, so they don't outlive it
+        events[--depth].clear();
+    }
+}
@@ -4,18 +4,25 @@ import net.aufdemrand.denizencore.DenizenCore;
 import net.aufdemrand.denizencore.objects.*;
 import net.aufdemrand.denizencore.scripts.ScriptEntry;
 import net.aufdemrand.denizencore.tags.core.*;
+import net.aufdemrand.denizencore.utilities.BoundedCache;
 import net.aufdemrand.denizencore.utilities.CoreUtilities;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
+import net.aufdemrand.denizencore.utilities.text.EscapeAwareString;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.*;
 
 public class TagManager {
 
@@ -37,16 +44,110 @@ public class TagManager {
         new UtilTags();
     }
 
+    /**
+     * Marks a method as a legacy tag handler, to be registered via {@link #registerTagEvents(Object)}.
+     * Handlers should list the root tag names they serve, so they're only called for those tags.
+     * Handlers without names are tried for every tag that no other handler filled.
+     */
     @Target(ElementType.METHOD)
     @Retention(RetentionPolicy.RUNTIME)
     public @interface TagEvents {
+        String[] value() default {};
+    }
+
+    public interface TagEventInvoker {
+        void invoke(ReplaceableTagEvent event);
+    }
+
+    /**
+     * A registered @TagEvents method, with a generated invoker in place of reflection.
+     */
+    public static class LegacyTagHandler {
+
+        public final Method method;
+
+        public final Object owner;
+
+        public final TagEventInvoker invoker;
+
+        public LegacyTagHandler(Method method, Object owner, TagEventInvoker invoker) {
+            this.method = method;
+            this.owner = owner;
+            this.invoker = invoker;
+        }
     }
 
-    private static List<Method> methods = new ArrayList<Method>();
-    private static List<Object> method_objects = new ArrayList<Object>();
+    private static List<LegacyTagHandler> unnamedLegacyHandlers = new ArrayList<LegacyTagHandler>();
+
+    private static HashMap<String, List<LegacyTagHandler>> namedLegacyHandlers = new HashMap<String, List<LegacyTagHandler>>();
 
     public static HashMap<String, TagRunnable.RootForm> handlers = new HashMap<String, TagRunnable.RootForm>();
 
+    /**
+     * Incremented whenever a root or object tag handler is registered,
+     * so that handlers bound to already-parsed tags know to re-resolve.
+     * Volatile, as tags may be read on other threads than the one registering handlers.
+     */
+    public static volatile int handlerVersion = 0;
+
+    /**
+     * A tag handler resolved ahead of time, along with the object type and
+     * registration version it was resolved against.
+     */
+    public static class HandlerBinding<T> {
+
+        public final Class<?> type;
+
+        public final T handler;
+
+        public final int version;
+
+        public HandlerBinding(Class<?> type, T handler, int version) {
+            this.type = type;
+            this.handler = handler;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Binds the root handler and predicted object tag handlers for a freshly parsed tag.
+     *
+     * @param ref the parsed tag reference data.
+     */
+    public static void bindHandlers(ReplaceableTagEvent.ReferenceData ref) {
+        Attribute.AttributeComponent[] components = ref.attribs.attributes;
+        if (components.length == 0) {
+            return;
+        }
+        ref.isObjectFetch = components[0].rawKey.indexOf('@') != -1;
+        if (!ref.isObjectFetch) {
+            getRootHandler(ref);
+        }
+        // Most object hops operate on elements, so bind those first and fall back to lists.
+        for (int i = 1; i < components.length; i++) {
+            Attribute.AttributeComponent component = components[i];
+            HandlerBinding<TagRunnable.ObjectForm> bound = component.boundTag;
+            if (bound != null && bound.version == handlerVersion) {
+                continue;
+            }
+            if (Element.registeredObjectTags.containsKey(component.key)) {
+                component.bindObjectTag(Element.class, Element.registeredObjectTags);
+            }
+            else if (dList.registeredObjectTags.containsKey(component.key)) {
+                component.bindObjectTag(dList.class, dList.registeredObjectTags);
+            }
+        }
+    }
+
+    public static TagRunnable.RootForm getRootHandler(ReplaceableTagEvent.ReferenceData ref) {
+        HandlerBinding<TagRunnable.RootForm> bound = ref.rootHandler;
+        if (bound == null || bound.version != handlerVersion) {
+            bound = new HandlerBinding<TagRunnable.RootForm>(null, handlers.get(ref.attribs.attributes[0].key), handlerVersion);
+            ref.rootHandler = bound;
+        }
+        return bound.handler;
+    }
+
     public static void registerTagEvents(Object o) {
         for (Method method : o.getClass().getMethods()) {
             if (!method.isAnnotationPresent(TagManager.TagEvents.class)) {
@@ -63,19 +164,123 @@ public class TagManager {
     }
 
     public static void unregisterTagEvents(Object o) {
-        for (int i = 0; i < methods.size(); i++) {
-            if (method_objects.get(i) == o) {
-                methods.remove(i);
-                method_objects.remove(i);
-                i--;
+        for (int i = 0; i < unnamedLegacyHandlers.size(); i++) {
+            if (unnamedLegacyHandlers.get(i).owner == o) {
+                unnamedLegacyHandlers.remove(i--);
+            }
+        }
+        for (List<LegacyTagHandler> named : namedLegacyHandlers.values()) {
+            for (int i = 0; i < named.size(); i++) {
+                if (named.get(i).owner == o) {
+                    named.remove(i--);
+                }
             }
         }
     }
 
     public static void registerMethod(Method method, Object o) {
         method.setAccessible(true); // Reduce invoke checks
-        methods.add(method);
-        method_objects.add(o);
+        LegacyTagHandler handler;
+        try {
+            handler = new LegacyTagHandler(method, o, generateInvoker(method, o));
+        }
+        catch (Throwable ex) {
+            dB.echoError("Failed to register tag handler " + method.getName() + " on " + method.getDeclaringClass().getCanonicalName() + ":");
+            dB.echoError(ex);
+            return;
+        }
+        String[] names = method.getAnnotation(TagEvents.class) == null ? new String[0] : method.getAnnotation(TagEvents.class).value();
+        if (names.length == 0) {
+            unnamedLegacyHandlers.add(handler);
+            return;
+        }
+        for (String name : names) {
+            String low = CoreUtilities.toLowerCase(name);
+            List<LegacyTagHandler> named = namedLegacyHandlers.get(low);
+            if (named == null) {
+                named = new ArrayList<LegacyTagHandler>();
+                namedLegacyHandlers.put(low, named);
+            }
+            named.add(handler);
+        }
+    }
+
+    /**
+     * Generates a direct invoker for a tag handler method.
+     * Uses a metafactory-spun lambda where the method's class is publicly reachable from here,
+     * and otherwise a bound method handle.
+     */
+    public static TagEventInvoker generateInvoker(Method method, Object o) throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle handle = lookup.unreflect(method);
+        MethodType invokedType = MethodType.methodType(void.class, ReplaceableTagEvent.class);
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        if (canSpinLambda(method)) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(lookup, "invoke",
+                        isStatic ? MethodType.methodType(TagEventInvoker.class)
+                                : MethodType.methodType(TagEventInvoker.class, method.getDeclaringClass()),
+                        invokedType, handle, invokedType);
+                return isStatic ? (TagEventInvoker) site.getTarget().invoke()
+                        : (TagEventInvoker) site.getTarget().invoke(o);
+            }
+            catch (Throwable ex) {
+                if (dB.verbose) {
+                    dB.log("Tag handler " + method.getName() + " cannot be spun as a lambda, using a method handle: " + ex.getMessage());
+                }
+            }
+        }
+        final MethodHandle bound = (isStatic ? handle : handle.bindTo(o)).asType(invokedType);
+        return new TagEventInvoker() {
+            @Override
+            public void invoke(ReplaceableTagEvent event) {
+                try {
+                    bound.invokeExact(event);
+                }
+                catch (RuntimeException ex) {
+                    throw ex;
+                }
+                catch (Error ex) {
+                    throw ex;
+                }
+                catch (Throwable ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        };
+    }
+
+    private static boolean canSpinLambda(Method method) {
+        Class<?> declaring = method.getDeclaringClass();
+        if (!Modifier.isPublic(method.getModifiers()) || !Modifier.isPublic(declaring.getModifiers())) {
+            return false;
+        }
+        try {
+            // Lambda classes link against the declaring class through this class's loader
+            return Class.forName(declaring.getName(), false, TagManager.class.getClassLoader()) == declaring;
+        }
+        catch (Throwable ex) {
+            return false;
+        }
+    }
+
+    static boolean fireLegacyHandler(LegacyTagHandler handler, ReplaceableTagEvent event) {
+        try {
+            handler.invoker.invoke(event);
+            if (event.replaced()) {
+                if (dB.verbose) {
+                    dB.log("Tag alt-handle success: " + handler.method.getName() + " on " + handler.method.getDeclaringClass().getCanonicalName() + " : " + event.getReplaced());
+                }
+                return true;
+            }
+        }
+        catch (TagWatchdog.TagTimeoutError ex) {
+            throw ex;
+        }
+        catch (Throwable ex) {
+            dB.echoError(ex);
+        }
+        return false;
     }
 
     public static void registerTagHandler(TagRunnable.RootForm run, String... names) {
@@ -90,17 +295,18 @@ public class TagManager {
                 handlers.put(rtemp.name, rtemp);
             }
         }
+        handlerVersion++;
     }
 
     public static void fireEvent(ReplaceableTagEvent event) {
         if (dB.verbose) {
-            dB.log("Tag fire: " + event.raw_tag + ", " + event.isInstant() + ", " + event.getAttributes().attributes[0].rawKey.contains("@") + ", " + event.hasAlternative() + "...");
+            dB.log("Tag fire: " + event.raw_tag + ", " + event.isInstant() + ", " + event.mainRef.isObjectFetch + ", " + event.hasAlternative() + "...");
         }
-        if (event.getAttributes().attributes[0].rawKey.contains("@")) {
+        if (event.mainRef.isObjectFetch) {
             fetchObject(event);
             return;
         }
-        TagRunnable.RootForm handler = handlers.get(event.getName());
+        TagRunnable.RootForm handler = event.mainRef.attribs.attributes.length == 0 ? null : getRootHandler(event.mainRef);
         if (handler != null) {
             try {
                 if (dB.verbose) {
@@ -114,23 +320,26 @@ public class TagManager {
                     return;
                 }
             }
+            catch (TagWatchdog.TagTimeoutError ex) {
+                throw ex;
+            }
             catch (Throwable ex) {
                 dB.echoError(ex);
             }
         }
-        for (int i = 0; i < methods.size(); i++) {
-            try {
-                // TODO: non-reflection invocation option?! Maybe JIT a runnable?
-                methods.get(i).invoke(method_objects.get(i), event);
-                if (event.replaced()) {
-                    if (dB.verbose) {
-                        dB.log("Tag alt-handle success: " + methods.get(i).getName() + " on " + methods.get(i).getDeclaringClass().getCanonicalName() + " : " + event.getReplaced());
+        if (event.mainRef.attribs.attributes.length > 0) {
+            List<LegacyTagHandler> named = namedLegacyHandlers.get(event.mainRef.attribs.attributes[0].key);
+            if (named != null) {
+                for (int i = 0; i < named.size(); i++) {
+                    if (fireLegacyHandler(named.get(i), event)) {
+                        return;
                     }
-                    return;
                 }
             }
-            catch (Throwable ex) {
-                dB.echoError(ex);
+        }
+        for (int i = 0; i < unnamedLegacyHandlers.size(); i++) {
+            if (fireLegacyHandler(unnamedLegacyHandlers.get(i), event)) {
+                return;
             }
         }
         if (dB.verbose) {
@@ -153,32 +362,7 @@ public class TagManager {
      * @return the cleaned output string.
      */
     public static String cleanOutput(String input) {
-        if (input == null) {
-            return null;
-        }
-        char[] data = input.toCharArray();
-        for (int i = 0; i < data.length; i++) {
-            switch (data[i]) {
-                case 0x01:
-                    data[i] = '<';
-                    break;
-                case 0x02:
-                    data[i] = '>';
-                    break;
-                case 0x07:
-                    data[i] = '[';
-                    break;
-                case 0x09:
-                    data[i] = ']';
-                    break;
-                case dList.internal_escape_char:
-                    data[i] = '|';
-                    break;
-                default:
-                    break;
-            }
-        }
-        return new String(data);
+        return EscapeAwareString.clean(input, false);
     }
 
     /**
@@ -192,77 +376,26 @@ public class TagManager {
      * @return the cleaned output string.
      */
     public static String cleanOutputFully(String input) {
-        if (input == null) {
-            return null;
-        }
-        char[] data = input.toCharArray();
-        for (int i = 0; i < data.length; i++) {
-            switch (data[i]) {
-                case 0x01:
-                    data[i] = '<';
-                    break;
-                case 0x02:
-                    data[i] = '>';
-                    break;
-                case 0x2011:
-                    data[i] = ';';
-                    break;
-                case 0x07:
-                    data[i] = '[';
-                    break;
-                case 0x09:
-                    data[i] = ']';
-                    break;
-                case dList.internal_escape_char:
-                    data[i] = '|';
-                    break;
-                case 0x00A0:
-                    data[i] = ' ';
-                    break;
-                default:
-                    break;
-            }
-        }
-        return new String(data);
+        return EscapeAwareString.clean(input, true);
     }
 
     public static String escapeOutput(String input) {
-        if (input == null) {
-            return null;
-        }
-        char[] data = input.toCharArray();
-        for (int i = 0; i < data.length; i++) {
-            switch (data[i]) {
-                case '<':
-                    data[i] = 0x01;
-                    break;
-                case '>':
-                    data[i] = 0x02;
-                    break;
-                case '[':
-                    data[i] = 0x07;
-                    break;
-                case ']':
-                    data[i] = 0x09;
-                    break;
-                case '|':
-                    data[i] = dList.internal_escape_char;
-                    break;
-                default:
-                    break;
-            }
-        }
-        return new String(data);
+        return EscapeAwareString.escape(input);
     }
 
     public static void fetchObject(ReplaceableTagEvent event) {
-        String object_type = CoreUtilities.toLowerCase(CoreUtilities.split(event.getAttributes().attributes[0].rawKey, '@').get(0));
-        Class object_class = ObjectFetcher.getObjectClass(object_type);
-
+        Class<? extends dObject> object_class = event.mainRef.objectType;
         if (object_class == null) {
-            dB.echoError("Invalid object type! Could not fetch '" + object_type + "'!");
-            event.setReplaced("null");
-            return;
+            String object_type = CoreUtilities.toLowerCase(CoreUtilities.split(event.getAttributes().attributes[0].rawKey, '@').get(0));
+            Class<?> found = ObjectFetcher.getObjectClass(object_type);
+
+            if (found == null) {
+                dB.echoError("Invalid object type! Could not fetch '" + object_type + "'!");
+                event.setReplaced("null");
+                return;
+            }
+            object_class = found.asSubclass(dObject.class);
+            event.mainRef.objectType = object_class;
         }
 
         dObject arg;
@@ -296,36 +429,9 @@ public class TagManager {
         }
     }
 
-    public static void executeWithTimeLimit(final ReplaceableTagEvent event, int seconds) {
-
+    public static void executeWithTimeLimit(ReplaceableTagEvent event, int seconds) {
         DenizenCore.getImplementation().preTagExecute();
-
-        ExecutorService executor = Executors.newFixedThreadPool(4);
-
-        Future<?> future = executor.submit(new Runnable() {
-            @Override
-            public void run() {
-                fireEvent(event);
-            }
-        });
-
-        executor.shutdown();
-
-        try {
-            future.get(seconds, TimeUnit.SECONDS);
-        }
-        catch (InterruptedException e) {
-            dB.echoError("Tag filling was interrupted!");
-        }
-        catch (ExecutionException e) {
-            dB.echoError(e);
-        }
-        catch (TimeoutException e) {
-            future.cancel(true);
-            dB.echoError("Tag filling timed out!");
-        }
-
-        executor.shutdownNow();
+        TagWatchdog.fireWithTimeLimit(event, seconds * 1000L);
     }
 
     public static String readSingleTag(String str, TagContext context) {
@@ -340,6 +446,16 @@ public class TagManager {
         if (tag.tagData.isInstant != context.instant) {
             return new Element("<" + tag.content + ">");
         }
+        if (TagCursorPool.enabled) {
+            TagCursorPool pool = TagCursorPool.get();
+            ReplaceableTagEvent event = pool.acquire(tag.tagData, tag.content, context);
+            try {
+                return readSingleTagObject(context, event);
+            }
+            finally {
+                pool.release();
+            }
+        }
         ReplaceableTagEvent event = new ReplaceableTagEvent(tag.tagData, tag.content, context);
         return readSingleTagObject(context, event);
     }
@@ -350,12 +466,16 @@ public class TagManager {
         if (dB.verbose) {
             dB.log("Tag read: " + event.raw_tag + ", " + event.isInstant() + ", " + tT + "...");
         }
+        long start = TagProfiler.enabled ? System.nanoTime() : 0;
         if (tT <= 0 || (!DenizenCore.getImplementation().shouldDebug(context) && !DenizenCore.getImplementation().tagTimeoutWhenSilent())) {
             fireEvent(event);
         }
         else {
             executeWithTimeLimit(event, tT);
         }
+        if (start != 0) {
+            TagProfiler.recordTag(event.mainRef, event.raw_tag, context, System.nanoTime() - start);
+        }
         if (!event.replaced() && event.hasAlternative()) {
             event.setReplacedObject(event.getAlternative());
         }
@@ -370,7 +490,8 @@ public class TagManager {
         return event.getReplacedObj();
     }
 
-    static HashMap<String, List<ParseableTagPiece>> preCalced = new HashMap<String, List<ParseableTagPiece>>();
+    public static final BoundedCache<String, List<ParseableTagPiece>> preCalced
+            = new BoundedCache<String, List<ParseableTagPiece>>("Tag chains", 16384, 2 * 1024 * 1024, BoundedCache.<List<ParseableTagPiece>>keyLength());
 
     public static class ParseableTagPiece {
         public String content;
@@ -448,21 +569,41 @@ public class TagManager {
     }
 
     public static List<ParseableTagPiece> genChain(String arg, TagContext context) {
+        return genChain(arg, context, true);
+    }
+
+    /**
+     * Parses a string into a chain of text and tag pieces.
+     * The returned list belongs to the caller and may be modified.
+     *
+     * @param cache whether the chain may be memoized. Pass false for text generated at runtime
+     *              (EG, output of already-filled tags), so it doesn't crowd out reusable entries.
+     */
+    public static List<ParseableTagPiece> genChain(String arg, TagContext context, boolean cache) {
+        List<ParseableTagPiece> pieces = genChainShared(arg, context, cache);
+        return pieces == null ? null : new ArrayList<ParseableTagPiece>(pieces);
+    }
+
+    /**
+     * As {@link #genChain(String, TagContext, boolean)}, but may return a list shared through
+     * the chain cache, which must not be modified.
+     */
+    static List<ParseableTagPiece> genChainShared(String arg, TagContext context, boolean cache) {
         if (arg == null) {
             return null;
         }
         arg = cleanOutput(arg);
-        List<ParseableTagPiece> pieces = preCalced.get(arg);
-        if (pieces != null) {
-            return pieces;
-        }
-        pieces = new ArrayList<ParseableTagPiece>();
+        List<ParseableTagPiece> pieces = new ArrayList<ParseableTagPiece>();
         if (arg.indexOf('>') == -1 || arg.length() < 3) {
             ParseableTagPiece txt = new ParseableTagPiece();
             txt.content = arg;
             pieces.add(txt);
             return pieces;
         }
+        List<ParseableTagPiece> cached = preCalced.get(arg);
+        if (cached != null) {
+            return cached;
+        }
         int[] positions = new int[2];
         positions[0] = -1;
         locateTag(arg, positions);
@@ -484,7 +625,7 @@ public class TagManager {
             ParseableTagPiece midTag = new ParseableTagPiece();
             midTag.content = tagToProc;
             midTag.isTag = true;
-            midTag.tagData = new ReplaceableTagEvent(tagToProc, context).mainRef;
+            midTag.tagData = new ReplaceableTagEvent(tagToProc, context, cache).mainRef;
             pieces.add(midTag);
             if (dB.verbose) {
                 dB.log("Tag: " + (preText == null ? "<null>" : preText.content) + " ||| " + midTag.content);
@@ -506,11 +647,18 @@ public class TagManager {
         if (dB.verbose) {
             dB.log("Tag chainify complete: " + arg);
         }
+        if (cache) {
+            preCalced.put(orig, pieces);
+        }
         return pieces;
     }
 
     public static dObject tagObject(String arg, TagContext context) {
-        return parseChainObject(genChain(arg, context), context, false);
+        // Plain text (EG, most tag contexts) doesn't need a chain built just to read it back
+        if (arg != null && (arg.indexOf('>') == -1 || arg.length() < 3)) {
+            return new Element(arg);
+        }
+        return parseChainObject(genChainShared(arg, context, true), context, false);
     }
 
     public static int findColonNotTagNorSpace(String arg) {
@@ -0,0 +1,246 @@
+package net.aufdemrand.denizencore.tags;
+
+import net.aufdemrand.denizencore.objects.TagRunnable;
+import net.aufdemrand.denizencore.objects.dObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opt-in timing of tag evaluation, per root tag (EG, 'util', 'el@') and per object tag
+ * (EG, 'element.split', 'list.parse'), along with the slowest full tags read.
+ * Times are inclusive: an object tag's time covers the rest of the tag it hands off to.
+ */
+public class TagProfiler {
+
+    public static boolean enabled = false;
+
+    /**
+     * Histogram buckets, by powers of two in microseconds: bucket 0 is under 1us,
+     * bucket N is under 2^N us, and the final bucket holds everything slower.
+     */
+    public static final int BUCKETS = 24;
+
+    public static int slowestTracked = 20;
+
+    public static class TagStats {
+
+        public final String name;
+
+        public long count = 0;
+
+        public long nanoTimes = 0;
+
+        public long maxNanos = 0;
+
+        public final long[] histogram = new long[BUCKETS];
+
+        public TagStats(String name) {
+            this.name = name;
+        }
+
+        synchronized void record(long nanos) {
+            count++;
+            nanoTimes += nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+            histogram[bucketFor(nanos)]++;
+        }
+
+        synchronized TagStats copy(String name) {
+            TagStats copy = new TagStats(name);
+            copy.count = count;
+            copy.nanoTimes = nanoTimes;
+            copy.maxNanos = maxNanos;
+            System.arraycopy(histogram, 0, copy.histogram, 0, BUCKETS);
+            return copy;
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(name).append(": ").append(count).append(" runs, totalling ")
+                    .append((float) nanoTimes / 1000000f).append("ms, averaging ")
+                    .append((float) nanoTimes / 1000f / (float) count).append("us, max ")
+                    .append((float) maxNanos / 1000f).append("us [");
+            boolean first = true;
+            for (int i = 0; i < BUCKETS; i++) {
+                if (histogram[i] == 0) {
+                    continue;
+                }
+                if (!first) {
+                    sb.append(", ");
+                }
+                first = false;
+                sb.append(i == BUCKETS - 1 ? ">=" + (1L << (i - 1)) : "<" + (1L << i)).append("us: ").append(histogram[i]);
+            }
+            return sb.append("]").toString();
+        }
+    }
+
+    public static class SlowTag {
+
+        public final String tag;
+
+        public final String script;
+
+        public final long nanos;
+
+        public SlowTag(String tag, String script, long nanos) {
+            this.tag = tag;
+            this.script = script;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public String toString() {
+            return "<" + tag + "> in " + (script == null ? "(None)" : script) + ": " + ((float) nanos / 1000f) + "us";
+        }
+    }
+
+    public static final ConcurrentHashMap<String, TagStats> rootStats = new ConcurrentHashMap<String, TagStats>();
+
+    // Object tag stats by object type, then by tag name, so recording doesn't need to build a key
+    public static final ConcurrentHashMap<String, ConcurrentHashMap<String, TagStats>> objectStats
+            = new ConcurrentHashMap<String, ConcurrentHashMap<String, TagStats>>();
+
+    private static final List<SlowTag> slowest = new ArrayList<SlowTag>();
+
+    // Fastest time that could still make the slowest list, read without a lock to skip most tags
+    private static volatile long slowestThreshold = 0;
+
+    static int bucketFor(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return bucket < BUCKETS ? bucket : BUCKETS - 1;
+    }
+
+    private static TagStats getStats(ConcurrentHashMap<String, TagStats> map, String name) {
+        TagStats stats = map.get(name);
+        if (stats == null) {
+            stats = new TagStats(name);
+            TagStats existing = map.putIfAbsent(name, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Records a full tag read, including its object tags.
+     */
+    public static void recordTag(ReplaceableTagEvent.ReferenceData ref, String rawTag, TagContext context, long nanos) {
+        String root;
+        if (ref.attribs.attributes.length == 0) {
+            root = "";
+        }
+        else if (ref.isObjectFetch) {
+            String key = ref.attribs.attributes[0].key;
+            root = key.substring(0, key.indexOf('@') + 1);
+        }
+        else {
+            root = ref.attribs.attributes[0].key;
+        }
+        getStats(rootStats, root).record(nanos);
+        if (nanos > slowestThreshold) {
+            recordSlow(rawTag, context.script == null ? null : context.script.getName(), nanos);
+        }
+    }
+
+    private static synchronized void recordSlow(String tag, String script, long nanos) {
+        int index = slowest.size();
+        while (index > 0 && slowest.get(index - 1).nanos < nanos) {
+            index--;
+        }
+        if (index >= slowestTracked) {
+            return;
+        }
+        slowest.add(index, new SlowTag(tag, script, nanos));
+        while (slowest.size() > slowestTracked) {
+            slowest.remove(slowest.size() - 1);
+        }
+        if (slowest.size() == slowestTracked) {
+            slowestThreshold = slowest.get(slowest.size() - 1).nanos;
+        }
+    }
+
+    /**
+     * Runs an object tag, recording its time under the given object type.
+     */
+    public static dObject runObjectTag(String type, TagRunnable.ObjectForm tag, Attribute attribute, dObject object) {
+        ConcurrentHashMap<String, TagStats> typeStats = objectStats.get(type);
+        if (typeStats == null) {
+            typeStats = new ConcurrentHashMap<String, TagStats>();
+            ConcurrentHashMap<String, TagStats> existing = objectStats.putIfAbsent(type, typeStats);
+            if (existing != null) {
+                typeStats = existing;
+            }
+        }
+        TagStats stats = getStats(typeStats, tag.name);
+        long start = System.nanoTime();
+        try {
+            return tag.run(attribute, object);
+        }
+        finally {
+            stats.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns a snapshot of all root and object tag stats, most expensive first.
+     * Object tags are named by their type, EG 'element.split'.
+     */
+    public static List<TagStats> getAllStats() {
+        List<TagStats> all = new ArrayList<TagStats>();
+        for (TagStats stats : rootStats.values()) {
+            all.add(stats.copy(stats.name));
+        }
+        for (Map.Entry<String, ConcurrentHashMap<String, TagStats>> type : objectStats.entrySet()) {
+            for (TagStats stats : type.getValue().values()) {
+                all.add(stats.copy(type.getKey() + "." + stats.name));
+            }
+        }
+        Collections.sort(all, new Comparator<TagStats>() {
+            @Override
+            public int compare(TagStats a, TagStats b) {
+                return Long.compare(b.nanoTimes, a.nanoTimes);
+            }
+        });
+        return all;
+    }
+
+    public static synchronized List<SlowTag> getSlowest() {
+        return new ArrayList<SlowTag>(slowest);
+    }
+
+    public static synchronized void reset() {
+        rootStats.clear();
+        objectStats.clear();
+        slowest.clear();
+        slowestThreshold = 0;
+    }
+
+    /**
+     * Returns a readable summary of all recorded tag stats, most expensive first.
+     *
+     * @return stats
+     */
+    public static String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Tag stats (").append(enabled ? "enabled" : "disabled").append("):\n");
+        for (TagStats stats : getAllStats()) {
+            sb.append(stats).append("\n");
+        }
+        sb.append("Slowest tags:\n");
+        for (SlowTag tag : getSlowest()) {
+            sb.append(tag).append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,170 @@
+package net.aufdemrand.denizencore.tags;
+
+import net.aufdemrand.denizencore.utilities.debugging.dB;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enforces tag time limits without leaving the calling thread.
+ * Tags register a deadline while they run, a single long-lived watchdog thread flags any
+ * that overrun, and the tag system checks for the flag at safe points (EG, attribute fulfillment
+ * and list loops), unwinding the tag with a {@link TagTimeoutError}.
+ */
+public class TagWatchdog {
+
+    /**
+     * Thrown from a deadline check once the running tag is out of time.
+     * Extends Error (as ThreadDeath does) so tag code that catches Exception won't swallow it.
+     */
+    public static class TagTimeoutError extends Error {
+
+        private static final long serialVersionUID = 1L;
+
+        public TagTimeoutError() {
+            super("Tag filling timed out!", null, false, false);
+        }
+    }
+
+    private static class Slot {
+
+        final Thread thread;
+
+        int depth = 0;
+
+        volatile int generation = 0;
+
+        volatile boolean active = false;
+
+        volatile long deadline = 0;
+
+        volatile int expiredGeneration = -1;
+
+        Slot(Thread thread) {
+            this.thread = thread;
+        }
+
+        boolean isExpired() {
+            return active && expiredGeneration == generation;
+        }
+    }
+
+    private static final ThreadLocal<Slot> slots = new ThreadLocal<Slot>() {
+        @Override
+        protected Slot initialValue() {
+            Slot slot = new Slot(Thread.currentThread());
+            activeSlots.add(slot);
+            return slot;
+        }
+    };
+
+    private static final CopyOnWriteArrayList<Slot> activeSlots = new CopyOnWriteArrayList<Slot>();
+
+    // Count of overdue deadlines as of the last poll, so checks on the hot path are a single read.
+    private static final AtomicInteger flagged = new AtomicInteger();
+
+    public static long pollIntervalMillis = 25;
+
+    private static Thread watchdog = null;
+
+    private static synchronized void ensureStarted() {
+        if (watchdog != null) {
+            return;
+        }
+        watchdog = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        Thread.sleep(pollIntervalMillis);
+                    }
+                    catch (InterruptedException ex) {
+                        return;
+                    }
+                    poll();
+                }
+            }
+        }, "Denizen Tag Watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    private static void poll() {
+        long now = System.nanoTime();
+        int count = 0;
+        for (Slot slot : activeSlots) {
+            if (!slot.thread.isAlive()) {
+                activeSlots.remove(slot);
+                continue;
+            }
+            int generation = slot.generation;
+            if (slot.active && now - slot.deadline > 0) {
+                slot.expiredGeneration = generation;
+                count++;
+            }
+        }
+        // Recounted each poll rather than tracked, so finished tags clear out on their own
+        flagged.set(count);
+    }
+
+    /**
+     * Starts a deadline for the current thread, unless an outer tag already holds one.
+     *
+     * @param millis the time limit.
+     * @return whether this call owns the deadline, and so must handle its expiry.
+     */
+    public static boolean begin(long millis) {
+        Slot slot = slots.get();
+        if (slot.depth++ > 0) {
+            return false;
+        }
+        ensureStarted();
+        slot.deadline = System.nanoTime() + millis * 1000000L;
+        slot.generation++;
+        slot.active = true;
+        return true;
+    }
+
+    public static void end() {
+        Slot slot = slots.get();
+        if (--slot.depth > 0) {
+            return;
+        }
+        slot.active = false;
+    }
+
+    /**
+     * Throws a {@link TagTimeoutError} if the current thread's tag deadline has passed.
+     */
+    public static void check() {
+        if (flagged.get() > 0) {
+            checkSlow();
+        }
+    }
+
+    private static void checkSlow() {
+        if (slots.get().isExpired()) {
+            throw new TagTimeoutError();
+        }
+    }
+
+    /**
+     * Fires a tag event inline, cutting it short if it runs past the time limit.
+     */
+    public static void fireWithTimeLimit(ReplaceableTagEvent event, long millis) {
+        boolean owner = begin(millis);
+        try {
+            TagManager.fireEvent(event);
+        }
+        catch (TagTimeoutError ex) {
+            if (!owner) {
+                throw ex;
+            }
+            dB.echoError(event.getScriptEntry() != null ? event.getScriptEntry().getResidingQueue() : null,
+                    "Tag filling timed out!");
+        }
+        finally {
+            end();
+        }
+    }
+}
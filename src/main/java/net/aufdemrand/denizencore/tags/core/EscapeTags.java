@@ -12,12 +12,14 @@ public class EscapeTags {
     public EscapeTags() {
         TagManager.registerTagHandler(new TagRunnable.RootForm() {
             @Override
+            @TagRunnable.Pure
             public void run(ReplaceableTagEvent event) {
                 escapeTags(event);
             }
         }, "escape");
         TagManager.registerTagHandler(new TagRunnable.RootForm() {
             @Override
+            @TagRunnable.Pure
             public void run(ReplaceableTagEvent event) {
                 unEscapeTags(event);
             }
@@ -4,12 +4,9 @@ import net.aufdemrand.denizencore.objects.ObjectFetcher;
 import net.aufdemrand.denizencore.objects.TagRunnable;
 import net.aufdemrand.denizencore.objects.dList;
 import net.aufdemrand.denizencore.objects.dScript;
-import net.aufdemrand.denizencore.scripts.ScriptBuilder;
 import net.aufdemrand.denizencore.scripts.ScriptEntry;
-import net.aufdemrand.denizencore.scripts.commands.core.DetermineCommand;
 import net.aufdemrand.denizencore.scripts.containers.core.ProcedureScriptContainer;
-import net.aufdemrand.denizencore.scripts.queues.ScriptQueue;
-import net.aufdemrand.denizencore.scripts.queues.core.InstantQueue;
+import net.aufdemrand.denizencore.scripts.queues.core.InlineQueue;
 import net.aufdemrand.denizencore.tags.Attribute;
 import net.aufdemrand.denizencore.tags.ReplaceableTagEvent;
 import net.aufdemrand.denizencore.tags.TagManager;
@@ -102,15 +99,8 @@ public class ProcedureScriptTags {
             return;
         }
 
-        // Create new ID -- this is what we will look for when determining an outcome
-        long id = DetermineCommand.getNewId();
-
-        // Add the reqId to each of the entries for referencing
-        ScriptBuilder.addObjectToEntries(entries, "reqid", id);
-
-        InstantQueue queue = InstantQueue.getQueue(ScriptQueue.getNextId(script.getContainer().getName()));
+        InlineQueue queue = new InlineQueue(script.getContainer().getName());
         queue.addEntries(entries);
-        queue.setReqId(id);
         if (event.hasType() &&
                 event.getType().equalsIgnoreCase("context") &&
                 event.hasTypeContext()) {
@@ -134,10 +124,10 @@ public class ProcedureScriptTags {
             queue.addDefinition("raw_context", event.getTypeContext());
         }
 
-        queue.start();
+        dList determinations = queue.run();
 
-        if (DetermineCommand.hasOutcome(id)) {
-            event.setReplacedObject(CoreUtilities.autoAttrib(ObjectFetcher.pickObjectFor(DetermineCommand.getOutcome(id).get(0))
+        if (determinations != null && !determinations.isEmpty()) {
+            event.setReplacedObject(CoreUtilities.autoAttrib(ObjectFetcher.pickObjectFor(determinations.get(0))
                     , attr.fulfill(attribs)));
         }
     }
@@ -6,6 +6,7 @@ import net.aufdemrand.denizencore.scripts.queues.ScriptQueue;
 import net.aufdemrand.denizencore.tags.Attribute;
 import net.aufdemrand.denizencore.tags.ReplaceableTagEvent;
 import net.aufdemrand.denizencore.tags.TagManager;
+import net.aufdemrand.denizencore.tags.TagProfiler;
 import net.aufdemrand.denizencore.utilities.CoreUtilities;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
 
@@ -19,6 +20,13 @@ public class UtilTags {
 
     public UtilTags() {
         TagManager.registerTagHandler(new TagRunnable.RootForm() {
+            @Override
+            public boolean isPure(Attribute attribute) {
+                // Only the math constants, everything else depends on the time or randomness
+                String constant = attribute.getAttributeWithoutContext(2);
+                return constant.startsWith("pi") || constant.startsWith("tau") || constant.equals("e");
+            }
+
             @Override
             public void run(ReplaceableTagEvent event) {
                 utilTag(event);
@@ -176,6 +184,37 @@ public class UtilTags {
                     , attribute.fulfill(1)));
         }
 
+        // <--[tag]
+        // @attribute <util.tag_stats>
+        // @returns dList
+        // @description
+        // Returns the tag profiler's stats for each root tag and object tag, most expensive first.
+        // Only tracked while the profiler is enabled by the implementation.
+        // -->
+        else if (attribute.startsWith("tag_stats")) {
+            attribute = attribute.fulfill(1);
+            dList stats = new dList();
+
+            // <--[tag]
+            // @attribute <util.tag_stats.slowest>
+            // @returns dList
+            // @description
+            // Returns the slowest individual tags the tag profiler has seen, and the scripts they ran in.
+            // -->
+            if (attribute.startsWith("slowest")) {
+                attribute = attribute.fulfill(1);
+                for (TagProfiler.SlowTag tag : TagProfiler.getSlowest()) {
+                    stats.add(tag.toString());
+                }
+            }
+            else {
+                for (TagProfiler.TagStats tag : TagProfiler.getAllStats()) {
+                    stats.add(tag.toString());
+                }
+            }
+            event.setReplacedObject(CoreUtilities.autoAttrib(stats, attribute));
+        }
+
         // <--[tag]
         // @attribute <util.date>
         // @returns Element
@@ -0,0 +1,182 @@
+package net.aufdemrand.denizencore.utilities;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe memoization cache, bounded by both entry count and total weight.
+ * <p/>
+ * Reads take no lock: entries live in a concurrent map, and a read only marks the entry it finds
+ * as recently used. When either limit is exceeded, entries are evicted CLOCK-style: a hand sweeps
+ * round the entries, sparing (and unmarking) those used since it last passed, and evicting the rest.
+ * Only evicting is done under a lock, so puts that don't go over the limits don't wait either.
+ */
+public class BoundedCache<K, V> {
+
+    public interface Weigher<K, V> {
+        int weigh(K key, V value);
+    }
+
+    /**
+     * Weighs entries by the length of their string key, which is a fair
+     * estimate of the size of anything parsed from that key.
+     */
+    public static <V> Weigher<String, V> keyLength() {
+        return new Weigher<String, V>() {
+            @Override
+            public int weigh(String key, V value) {
+                return key.length() + 1;
+            }
+        };
+    }
+
+    private static class Entry<V> {
+
+        final V value;
+
+        final int weight;
+
+        // Whether the entry's been read since the hand last passed it
+        volatile boolean used = false;
+
+        Entry(V value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    public final String name;
+
+    private final Weigher<K, V> weigher;
+
+    private final ConcurrentHashMap<K, Entry<V>> map = new ConcurrentHashMap<K, Entry<V>>(64);
+
+    private volatile int maxSize;
+
+    private volatile long maxWeight;
+
+    private final AtomicLong weight = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final Object evictLock = new Object();
+
+    // Where the hand is, kept between evictions (guarded by evictLock)
+    private Iterator<Map.Entry<K, Entry<V>>> hand = null;
+
+    public BoundedCache(String name, int maxSize, long maxWeight, Weigher<K, V> weigher) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        // Only write if needed, so hot entries aren't written on every read
+        if (!entry.used) {
+            entry.used = true;
+        }
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        Entry<V> entry = new Entry<V>(value, weigher.weigh(key, value));
+        Entry<V> old = map.put(key, entry);
+        weight.addAndGet(old == null ? entry.weight : entry.weight - old.weight);
+        if (isOver()) {
+            trim();
+        }
+    }
+
+    public void remove(K key) {
+        Entry<V> old = map.remove(key);
+        if (old != null) {
+            weight.addAndGet(-old.weight);
+        }
+    }
+
+    public void clear() {
+        for (K key : map.keySet()) {
+            remove(key);
+        }
+    }
+
+    public void setLimits(int maxSize, long maxWeight) {
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+        trim();
+    }
+
+    private boolean isOver() {
+        return map.size() > maxSize || weight.get() > maxWeight;
+    }
+
+    private void trim() {
+        synchronized (evictLock) {
+            // Two full turns at most: the first may only unmark everything
+            int steps = 2 * map.size() + 2;
+            while (isOver() && steps-- > 0) {
+                if (hand == null || !hand.hasNext()) {
+                    hand = map.entrySet().iterator();
+                    if (!hand.hasNext()) {
+                        return;
+                    }
+                }
+                Map.Entry<K, Entry<V>> next = hand.next();
+                Entry<V> entry = next.getValue();
+                if (entry.used) {
+                    entry.used = false;
+                }
+                else if (map.remove(next.getKey(), entry)) {
+                    weight.addAndGet(-entry.weight);
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public long getWeight() {
+        return weight.get();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + map.size() + "/" + maxSize + " entries, weight " + weight.get() + "/" + maxWeight
+                + ", " + getHits() + " hits, " + getMisses() + " misses, " + getEvictions() + " evictions";
+    }
+}
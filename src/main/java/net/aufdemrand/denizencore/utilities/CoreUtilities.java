@@ -4,6 +4,7 @@ import net.aufdemrand.denizencore.objects.*;
 import net.aufdemrand.denizencore.objects.properties.Property;
 import net.aufdemrand.denizencore.scripts.queues.ScriptQueue;
 import net.aufdemrand.denizencore.tags.Attribute;
+import net.aufdemrand.denizencore.tags.ConstantFolder;
 import net.aufdemrand.denizencore.tags.TagContext;
 import net.aufdemrand.denizencore.utilities.debugging.dB;
 
@@ -29,6 +30,7 @@ public class CoreUtilities {
         if (attribute.isComplete()) {
             return null;
         }
+        ConstantFolder.checkPure(attribute, false);
         if (inp instanceof dObject.ObjectAttributable) {
             return ((dObject.ObjectAttributable) inp).getObjectAttribute(attribute);
         }
@@ -51,6 +53,9 @@ public class CoreUtilities {
         if (attribute.isComplete()) {
             return inp;
         }
+        if (!(inp instanceof Element) && !(inp instanceof dList)) {
+            ConstantFolder.checkPure(attribute, false);
+        }
         if (inp instanceof dObject.ObjectAttributable) {
             return ((dObject.ObjectAttributable) inp).getObjectAttribute(attribute);
         }
@@ -2,6 +2,7 @@ package net.aufdemrand.denizencore.utilities.debugging;
 
 import net.aufdemrand.denizencore.DenizenCore;
 import net.aufdemrand.denizencore.scripts.queues.ScriptQueue;
+import net.aufdemrand.denizencore.tags.ConstantFolder;
 
 public class dB {
 
@@ -27,18 +28,22 @@ public class dB {
     }
 
     public static void echoError(String error) {
+        ConstantFolder.checkNoError();
         DenizenCore.getImplementation().debugError(error);
     }
 
     public static void echoError(ScriptQueue queue, String error) {
+        ConstantFolder.checkNoError();
         DenizenCore.getImplementation().debugError(queue, error);
     }
 
     public static void echoError(ScriptQueue queue, Throwable error) {
+        ConstantFolder.checkNoError();
         DenizenCore.getImplementation().debugError(queue, error);
     }
 
     public static void echoError(Throwable ex) {
+        ConstantFolder.checkNoError();
         DenizenCore.getImplementation().debugException(ex);
     }
 
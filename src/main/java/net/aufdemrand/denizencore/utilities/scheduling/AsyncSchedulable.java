@@ -35,4 +35,14 @@ public class AsyncSchedulable extends Schedulable {
     public boolean tick(float seconds) {
         return this.schedulable.tick(seconds);
     }
+
+    @Override
+    public long getFirstDelayMillis() {
+        return this.schedulable.getFirstDelayMillis();
+    }
+
+    @Override
+    public long fire() {
+        return this.schedulable.fire();
+    }
 }
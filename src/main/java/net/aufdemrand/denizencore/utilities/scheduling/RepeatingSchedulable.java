@@ -22,4 +22,22 @@ public class RepeatingSchedulable extends Schedulable {
         }
         return true;
     }
+
+    /**
+     * Subclasses may override {@link #tick(float)}, which the timing wheel wouldn't call,
+     * so they're ticked as before unless they override this too.
+     */
+    @Override
+    public long getFirstDelayMillis() {
+        if (getClass() != RepeatingSchedulable.class) {
+            return -1;
+        }
+        return Math.max(0, Math.round(secondsLeft * 1000));
+    }
+
+    @Override
+    public long fire() {
+        run.run();
+        return Math.max(0, Math.round(fireEverySeconds * 1000));
+    }
 }
@@ -3,11 +3,26 @@ package net.aufdemrand.denizencore.utilities.scheduling;
 public abstract class Schedulable {
 
     protected Runnable run;
-    protected boolean cancelled;
+    protected volatile boolean cancelled;
     protected float secondsLeft;
 
+    // Position on the timing wheel, if this is on one
+    TimingWheel wheel;
+    long deadline;
+    int wheelSlot = -1;
+    Schedulable wheelPrev;
+    Schedulable wheelNext;
+
     public void cancel() {
         cancelled = true;
+        TimingWheel wheel = this.wheel;
+        if (wheel != null) {
+            wheel.cancelled(this);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
     }
 
     public boolean isSync() {
@@ -15,4 +30,22 @@ public abstract class Schedulable {
     }
 
     public abstract boolean tick(float seconds);
+
+    /**
+     * Returns how many milliseconds until this first runs, for schedulables that run at set times
+     * and so can wait on the scheduler's {@link TimingWheel}. Returns -1 for schedulables
+     * that need {@link #tick(float)} calling every tick instead, which is the default.
+     */
+    public long getFirstDelayMillis() {
+        return -1;
+    }
+
+    /**
+     * Runs this for having reached its deadline on the timing wheel.
+     *
+     * @return how many milliseconds after this deadline to run again, or -1 if it's finished.
+     */
+    public long fire() {
+        return -1;
+    }
 }
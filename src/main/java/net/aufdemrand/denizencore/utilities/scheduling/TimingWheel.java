@@ -0,0 +1,227 @@
+package net.aufdemrand.denizencore.utilities.scheduling;
+
+import net.aufdemrand.denizencore.utilities.debugging.dB;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Holds timed schedulables by absolute deadline, on a hierarchical timing wheel: each level
+ * is a ring of 64 slots, with each slot of a level spanning a full turn of the level below.
+ * Adding or cancelling is O(1), and a tick only looks at the slots it passes through,
+ * however many schedulables are waiting. Schedulables move down a level as their time nears.
+ * <p/>
+ * Time is counted in milliseconds, from the elapsed time given to each {@link #advance(long)},
+ * so deadlines don't drift. A schedulable runs on the first tick that reaches its deadline,
+ * and a repeating one runs at most once per tick.
+ * <p/>
+ * The wheel itself belongs to the ticking thread. Schedulables from any thread are handed
+ * over through a lock-free queue, and placed at the start of the next tick.
+ */
+public class TimingWheel {
+
+    private static final int BITS = 6;
+
+    private static final int SLOTS = 1 << BITS;
+
+    private static final int MASK = SLOTS - 1;
+
+    private static final int LEVELS = 6;
+
+    // Furthest ahead a schedulable can be placed, beyond which it's placed this far and moved again later
+    private static final long SPAN = (1L << (BITS * LEVELS)) - 1;
+
+    // Slot heads and tails, indexed by level * SLOTS + slot
+    private final Schedulable[] slots = new Schedulable[LEVELS * SLOTS];
+
+    private final Schedulable[] tails = new Schedulable[LEVELS * SLOTS];
+
+    private final ConcurrentLinkedQueue<Schedulable> submitted = new ConcurrentLinkedQueue<Schedulable>();
+
+    private final List<Schedulable> repeating = new ArrayList<Schedulable>();
+
+    // The next millisecond not yet run
+    private long current = 0;
+
+    private int size = 0;
+
+    private volatile Thread owner = null;
+
+    /**
+     * Adds a schedulable, to run once its first delay has passed since the last tick.
+     * Safe to call from any thread.
+     */
+    public void schedule(Schedulable schedulable) {
+        submitted.add(schedulable);
+    }
+
+    /**
+     * Returns the number of schedulables on the wheel (not counting any submitted since the last tick).
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the current time of the wheel, in milliseconds since it started.
+     */
+    public long getTime() {
+        return current - 1;
+    }
+
+    void cancelled(Schedulable schedulable) {
+        // Only the ticking thread may touch the slots: anywhere else, the schedulable is dropped once reached
+        if (Thread.currentThread() == owner && schedulable.wheel == this && schedulable.wheelSlot >= 0) {
+            unlink(schedulable);
+        }
+    }
+
+    /**
+     * Moves time forward, running everything due along the way.
+     *
+     * @param millis how many milliseconds have passed.
+     */
+    public void advance(long millis) {
+        owner = Thread.currentThread();
+        Schedulable schedulable;
+        while ((schedulable = submitted.poll()) != null) {
+            if (!schedulable.cancelled) {
+                schedulable.deadline = current - 1 + schedulable.getFirstDelayMillis();
+                place(schedulable);
+            }
+        }
+        long target = current + millis;
+        while (current < target) {
+            if (size == 0) {
+                current = target;
+                break;
+            }
+            if ((current & MASK) == 0) {
+                cascade();
+            }
+            runSlot((int) (current & MASK));
+            current++;
+        }
+        // Repeat anything that ran, from its own deadline rather than from now
+        for (int i = 0; i < repeating.size(); i++) {
+            Schedulable again = repeating.get(i);
+            if (again.cancelled) {
+                again.wheel = null;
+            }
+            else {
+                place(again);
+            }
+        }
+        repeating.clear();
+    }
+
+    private void cascade() {
+        int level = 1;
+        while (level < LEVELS - 1 && ((current >>> (BITS * level)) & MASK) == 0) {
+            level++;
+        }
+        // Empty the higher levels first, so nothing lands in a slot that's already been emptied
+        for (; level >= 1; level--) {
+            int index = level * SLOTS + (int) ((current >>> (BITS * level)) & MASK);
+            Schedulable schedulable = slots[index];
+            slots[index] = null;
+            tails[index] = null;
+            while (schedulable != null) {
+                Schedulable next = schedulable.wheelNext;
+                size--;
+                schedulable.wheelSlot = -1;
+                if (schedulable.cancelled) {
+                    schedulable.wheel = null;
+                }
+                else {
+                    place(schedulable);
+                }
+                schedulable = next;
+            }
+        }
+    }
+
+    private void runSlot(int index) {
+        Schedulable schedulable = slots[index];
+        slots[index] = null;
+        tails[index] = null;
+        // Take the whole slot off the wheel first, so anything cancelled while it runs is just skipped
+        for (Schedulable taken = schedulable; taken != null; taken = taken.wheelNext) {
+            taken.wheelSlot = -1;
+        }
+        while (schedulable != null) {
+            Schedulable next = schedulable.wheelNext;
+            size--;
+            schedulable.wheelPrev = null;
+            schedulable.wheelNext = null;
+            long again = -1;
+            if (!schedulable.cancelled) {
+                try {
+                    again = schedulable.fire();
+                }
+                catch (Throwable ex) {
+                    dB.echoError(ex);
+                }
+            }
+            if (again >= 0 && !schedulable.cancelled) {
+                schedulable.deadline += again;
+                repeating.add(schedulable);
+            }
+            else {
+                schedulable.wheel = null;
+            }
+            schedulable = next;
+        }
+    }
+
+    private void place(Schedulable schedulable) {
+        long delta = schedulable.deadline - current;
+        if (delta < 0) {
+            delta = 0;
+        }
+        else if (delta > SPAN) {
+            delta = SPAN;
+        }
+        long time = current + delta;
+        int level = 0;
+        while (delta >= (1L << (BITS * (level + 1)))) {
+            level++;
+        }
+        int index = level * SLOTS + (int) ((time >>> (BITS * level)) & MASK);
+        // Add to the end, so schedulables due on the same tick run in the order they were placed
+        Schedulable tail = tails[index];
+        schedulable.wheelPrev = tail;
+        schedulable.wheelNext = null;
+        if (tail != null) {
+            tail.wheelNext = schedulable;
+        }
+        else {
+            slots[index] = schedulable;
+        }
+        tails[index] = schedulable;
+        schedulable.wheelSlot = index;
+        schedulable.wheel = this;
+        size++;
+    }
+
+    private void unlink(Schedulable schedulable) {
+        if (schedulable.wheelPrev != null) {
+            schedulable.wheelPrev.wheelNext = schedulable.wheelNext;
+        }
+        else {
+            slots[schedulable.wheelSlot] = schedulable.wheelNext;
+        }
+        if (schedulable.wheelNext != null) {
+            schedulable.wheelNext.wheelPrev = schedulable.wheelPrev;
+        }
+        else {
+            tails[schedulable.wheelSlot] = schedulable.wheelPrev;
+        }
+        schedulable.wheelPrev = null;
+        schedulable.wheelNext = null;
+        schedulable.wheelSlot = -1;
+        schedulable.wheel = null;
+        size--;
+    }
+}
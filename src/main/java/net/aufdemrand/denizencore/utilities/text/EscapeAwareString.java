@@ -0,0 +1,192 @@
+package net.aufdemrand.denizencore.utilities.text;
+
+/**
+ * Holds a string along with which kinds of tag-system escaping it contains, found in a single scan.
+ * Conversions between internal escape characters and plain text are no-ops (returning the same string)
+ * when there's nothing to convert, and are remembered once done.
+ */
+public class EscapeAwareString {
+
+    // INTERNAL MAPPING NOTE (see TagManager):
+    // 0x01: <
+    // 0x02: >
+    // 0x05: |
+    // 0x07: [
+    // 0x09: ]
+    // 0x2011: ; (display only)
+    // 0x00A0: space (display only)
+
+    /**
+     * Flag: contains internal escape characters, which {@link #cleaned()} converts back.
+     */
+    public static final int INTERNAL = 1;
+
+    /**
+     * Flag: contains display-only escape characters, which only {@link #cleanedFully()} converts back.
+     */
+    public static final int DISPLAY = 2;
+
+    /**
+     * Flag: contains symbols that {@link #escaped()} hides from the tag parser.
+     */
+    public static final int SPECIAL = 4;
+
+    public final String str;
+
+    public final int flags;
+
+    private String cleaned = null;
+
+    private String cleanedFully = null;
+
+    private String escaped = null;
+
+    public EscapeAwareString(String str) {
+        this.str = str;
+        this.flags = scan(str);
+    }
+
+    public static int scan(String str) {
+        int flags = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c < '~') {
+                if (cleanChar(c, false) != c) {
+                    flags |= INTERNAL;
+                }
+                else if (escapeChar(c) != c) {
+                    flags |= SPECIAL;
+                }
+            }
+            else if (c == 0x2011 || c == 0x00A0) {
+                flags |= DISPLAY;
+            }
+        }
+        return flags;
+    }
+
+    public static boolean isInternalEscape(char c) {
+        return c < ' ' && cleanChar(c, false) != c;
+    }
+
+    public static char cleanChar(char c, boolean fully) {
+        switch (c) {
+            case 0x01:
+                return '<';
+            case 0x02:
+                return '>';
+            case 0x05:
+                return '|';
+            case 0x07:
+                return '[';
+            case 0x09:
+                return ']';
+            case 0x2011:
+                return fully ? ';' : c;
+            case 0x00A0:
+                return fully ? ' ' : c;
+            default:
+                return c;
+        }
+    }
+
+    public static char escapeChar(char c) {
+        switch (c) {
+            case '<':
+                return 0x01;
+            case '>':
+                return 0x02;
+            case '|':
+                return 0x05;
+            case '[':
+                return 0x07;
+            case ']':
+                return 0x09;
+            default:
+                return c;
+        }
+    }
+
+    /**
+     * Converts internal escape characters back to their symbols, copying only if any are present.
+     *
+     * @param fully whether to also convert display-only escapes.
+     */
+    public static String clean(String input, boolean fully) {
+        if (input == null) {
+            return null;
+        }
+        int length = input.length();
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (cleanChar(c, fully) != c) {
+                char[] data = input.toCharArray();
+                for (int x = i; x < length; x++) {
+                    data[x] = cleanChar(data[x], fully);
+                }
+                return new String(data);
+            }
+        }
+        return input;
+    }
+
+    /**
+     * Converts symbols the tag parser would read into internal escape characters, copying only if any are present.
+     */
+    public static String escape(String input) {
+        if (input == null) {
+            return null;
+        }
+        int length = input.length();
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (escapeChar(c) != c) {
+                char[] data = input.toCharArray();
+                for (int x = i; x < length; x++) {
+                    data[x] = escapeChar(data[x]);
+                }
+                return new String(data);
+            }
+        }
+        return input;
+    }
+
+    public boolean has(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    public String cleaned() {
+        if ((flags & INTERNAL) == 0) {
+            return str;
+        }
+        if (cleaned == null) {
+            cleaned = clean(str, false);
+        }
+        return cleaned;
+    }
+
+    public String cleanedFully() {
+        if ((flags & (INTERNAL | DISPLAY)) == 0) {
+            return str;
+        }
+        if (cleanedFully == null) {
+            cleanedFully = clean(str, true);
+        }
+        return cleanedFully;
+    }
+
+    public String escaped() {
+        if ((flags & SPECIAL) == 0) {
+            return str;
+        }
+        if (escaped == null) {
+            escaped = escape(str);
+        }
+        return escaped;
+    }
+
+    @Override
+    public String toString() {
+        return str;
+    }
+}